@@ -0,0 +1,114 @@
+package study.datajpa.benchmark;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.DataJpaApplication;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * findByNames 처럼 in 절 크기가 매번 다른 조회에서 in_clause_parameter_padding 효과 비교
+ * padding 을 켜면 파라미터 개수가 2의 거듭제곱으로 맞춰져서 SQL 종류가 줄어든다. (쿼리 플랜 캐시 / statement 캐시 재사용)
+ * Trial 이 끝나면 플랜 캐시 miss 수와 prepare 된 statement 수를 출력한다.
+ *
+ * 실행 : ./gradlew jmh  또는 main()
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InClausePaddingBenchmark {
+
+    private static final int MEMBERS = 10_000;
+    private static final int MAX_IN_LIST_SIZE = 100;
+
+    @Param({"false", "true"})
+    public boolean padding;
+
+    private ConfigurableApplicationContext context;
+    private MemberRepository memberRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-in-clause;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.format_sql=false",
+                        "spring.jpa.properties.hibernate.query.in_clause_parameter_padding=" + padding,
+                        "datajpa.hibernate-statistics.enabled=true",
+                        "datajpa.query-plan.enabled=false",
+                        "datajpa.outbox.relay.enabled=false",
+                        "logging.level.org.hibernate.SQL=warn")
+                .run();
+        memberRepository = context.getBean(MemberRepository.class);
+
+        List<Member> seed = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            seed.add(new Member("user" + i, i % 100));
+        }
+        memberRepository.saveAllBatched(seed, 1000);
+        statistics().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Statistics statistics = statistics();
+        System.out.printf("%npadding=%s queryPlanCacheMiss=%d queryPlanCacheHit=%d prepareStatement=%d%n",
+                padding, statistics.getQueryPlanCacheMissCount(), statistics.getQueryPlanCacheHitCount(),
+                statistics.getPrepareStatementCount());
+        context.close();
+    }
+
+    @Benchmark
+    public List<Member> findByNames() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = 1 + random.nextInt(MAX_IN_LIST_SIZE);
+        List<String> names = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            names.add("user" + random.nextInt(MEMBERS));
+        }
+        return memberRepository.findByNames(names);
+    }
+
+    private Statistics statistics() {
+        return context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(InClausePaddingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,117 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.DataJpaApplication;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * change_counter row lock (MemberChangeSequence) 이 회원 변경 커밋을 얼마나 직렬화하는지 측정한다.
+ * 스레드마다 자기 회원/팀 하나를 바꾸고 커밋한다. (row 충돌 없음)
+ * updateTeam 은 스레드 수만큼 처리량이 늘고, updateMember 는 counter 락 때문에 거의 늘지 않는다.
+ *
+ * 실행 : main() (스레드 1개, 8개로 각각 실행)  또는 ./gradlew jmh (build 스크립트의 jmh { threads = 1 } 로 스레드 수 변경)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class MemberChangeCommitBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private MemberRepository memberRepository;
+    private TeamRepository teamRepository;
+    private TransactionTemplate transaction;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-change-commit;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.format_sql=false",
+                        "datajpa.outbox.relay.enabled=false",
+                        "logging.level.org.hibernate.SQL=warn")
+                .run();
+        memberRepository = context.getBean(MemberRepository.class);
+        teamRepository = context.getBean(TeamRepository.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // 스레드마다 다른 row
+    @State(Scope.Thread)
+    public static class Rows {
+        Long memberId;
+        Long teamId;
+
+        @Setup(Level.Trial)
+        public void setUp(MemberChangeCommitBenchmark benchmark) {
+            int i = benchmark.sequence.incrementAndGet();
+            Team team = benchmark.transaction.execute(status -> benchmark.teamRepository.save(new Team("team" + i)));
+            Member member = benchmark.transaction.execute(status -> benchmark.memberRepository.save(new Member("member" + i, 0)));
+            teamId = team.getId();
+            memberId = member.getId();
+        }
+    }
+
+    @Benchmark
+    public void updateMember(Rows rows) {
+        transaction.executeWithoutResult(status -> {
+            Member member = memberRepository.findById(rows.memberId).get();
+            member.setAge(member.getAge() + 1);
+        });
+    }
+
+    @Benchmark
+    public void updateTeam(Rows rows) {
+        transaction.executeWithoutResult(status -> {
+            Team team = teamRepository.findById(rows.teamId).get();
+            team.setName("team" + rows.teamId + "-" + System.nanoTime());
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 8}) {
+            Options options = new OptionsBuilder()
+                    .include(MemberChangeCommitBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
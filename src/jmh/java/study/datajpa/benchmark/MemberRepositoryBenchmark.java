@@ -0,0 +1,166 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.DataJpaApplication;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberJpaRepository;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.NestedClosedProjections;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.repository.UsernameOnly;
+import study.datajpa.repository.UsernameOnlyDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * repository 조회 방식별 성능 비교 (derived query / 직접 작성한 JPQL / projection / DTO)
+ * 메모리 H2 에 members 수만큼 회원을 넣고 측정한다.
+ *
+ * 실행 : ./gradlew jmh  또는 main() (GC 프로파일러로 할당량(gc.alloc.rate.norm)도 함께 출력) - 빌드 설정은 README 의 benchmark 참고
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberRepositoryBenchmark {
+
+    private static final int TEAM_COUNT = 10;
+
+    @Param({"1000", "10000", "100000"})
+    public int members;
+
+    private ConfigurableApplicationContext context;
+    private MemberRepository memberRepository;
+    private MemberJpaRepository memberJpaRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.properties.hibernate.format_sql=false",
+                        "datajpa.outbox.relay.enabled=false",
+                        "logging.level.org.hibernate.SQL=warn")
+                .run();
+        memberRepository = context.getBean(MemberRepository.class);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < TEAM_COUNT; i++) {
+            teams.add(new Team("team" + i));
+        }
+        context.getBean(TeamRepository.class).saveAll(teams);
+
+        List<Member> seed = new ArrayList<>();
+        for (int i = 0; i < members; i++) {
+            seed.add(new Member("user" + i, i % 100, teams.get(i % TEAM_COUNT)));
+        }
+        memberRepository.saveAllBatched(seed, 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private String randomUsername() {
+        return "user" + ThreadLocalRandom.current().nextInt(members);
+    }
+
+    //== 단건 조회 : derived query vs 직접 작성한 JPQL ==//
+
+    @Benchmark
+    public List<Member> derivedFindByUsername() {
+        return memberRepository.findByUsername(randomUsername());
+    }
+
+    @Benchmark
+    public List<Member> jpqlFindByUsername() {
+        return memberJpaRepository.findByUsername(randomUsername());
+    }
+
+    @Benchmark
+    public List<Member> derivedFindByUsernameAndAgeGreaterThan() {
+        return memberRepository.findByUsernameAndAgeGreaterThan(randomUsername(), 10);
+    }
+
+    @Benchmark
+    public List<Member> jpqlFindByUsernameAndAgeGreaterThen() {
+        return memberJpaRepository.findByUsernameAndAgeGreaterThen(randomUsername(), 10);
+    }
+
+    //== projection ==//
+
+    @Benchmark
+    public List<UsernameOnly> interfaceProjection() {
+        return memberRepository.findInterfaceProjectionsByUsername(randomUsername());
+    }
+
+    @Benchmark
+    public List<UsernameOnlyDto> classProjection() {
+        return memberRepository.findClassProjectionsByUsername(randomUsername());
+    }
+
+    @Benchmark
+    public List<NestedClosedProjections> nestedProjection() {
+        return memberRepository.findProjectionsByUsername(randomUsername(), NestedClosedProjections.class);
+    }
+
+    //== 전체 목록 : 엔티티 + fetch 전략 vs DTO ==//
+
+    @Benchmark
+    public List<MemberDto> listMemberDto() {
+        return memberRepository.findMemberDto();
+    }
+
+    @Benchmark
+    public List<Member> listFetchJoin() {
+        return memberRepository.findMemberFetchJoin();
+    }
+
+    @Benchmark
+    public List<Member> listEntityGraph() {
+        return memberRepository.findMemberEntityGraph();
+    }
+
+    @Benchmark
+    public List<Member> listJpql() {
+        return memberJpaRepository.findAll();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MemberRepositoryBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
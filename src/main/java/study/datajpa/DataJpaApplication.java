@@ -5,11 +5,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import study.datajpa.audit.TransactionScopedAuditorAware;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
-@EnableJpaAuditing
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider") // 시각은 AuditConfig
 @SpringBootApplication
 public class DataJpaApplication {
 
@@ -26,6 +28,13 @@ public class DataJpaApplication {
 //				return Optional.of(UUID.randomUUID().toString());
 //			}
 //		};
-		return () -> Optional.of(UUID.randomUUID().toString()); //람다 적용용
+//		return () -> Optional.of(UUID.randomUUID().toString()); //람다 적용용
+		// 저장마다 UUID.randomUUID() (SecureRandom) 를 호출하지 않고 트랜잭션마다 한번만 만든다.
+		return new TransactionScopedAuditorAware(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L; // version 4 (random)
+			long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L; // IETF variant
+			return new UUID(mostSigBits, leastSigBits).toString();
+		});
 	}
 }
@@ -0,0 +1,59 @@
+package study.datajpa.audit;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * 감사(auditing) 시각
+ * 호출할때마다 시계를 읽는다. 긴 batch 트랜잭션에서도 row 마다 실제 저장(flush) 시각이 찍힌다.
+ * (트랜잭션 시작 시각을 재사용하면 lastModifiedDate, OutboxEvent.occurredAt 이 커밋보다 한참 이전 시각이 된다)
+ * 같은 밀리초 안에서는 처음 만든 LocalDateTime 을 그대로 돌려준다. row 마다 시간대 변환과 객체 생성을 하지 않는다. (정밀도는 밀리초)
+ *
+ * JPA 콜백(JpaBaseEntity)은 스프링 빈이 아니므로 static 으로 제공한다. 시계는 AuditClockBinder 가 설정한다.
+ */
+public final class AuditClock {
+
+    private static volatile Clock clock = Clock.systemDefaultZone();
+    private static volatile Tick tick = new Tick(null, 0, null);
+
+    private AuditClock() {
+    }
+
+    public static LocalDateTime now() {
+        Clock current = clock;
+        long millis = current.millis();
+        Tick cached = tick;
+        if (cached.clock == current && cached.millis == millis) {
+            return cached.time;
+        }
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), current.getZone());
+        tick = new Tick(current, millis, time);
+        return time;
+    }
+
+    public static Clock getClock() {
+        return clock;
+    }
+
+    public static void setClock(Clock clock) {
+        AuditClock.clock = clock;
+    }
+
+    public static void reset() {
+        clock = Clock.systemDefaultZone();
+    }
+
+    // 시계, 밀리초, 시각을 한번에 바꾸도록 하나로 묶는다.
+    private static final class Tick {
+        private final Clock clock;
+        private final long millis;
+        private final LocalDateTime time;
+
+        private Tick(Clock clock, long millis, LocalDateTime time) {
+            this.clock = clock;
+            this.millis = millis;
+            this.time = time;
+        }
+    }
+}
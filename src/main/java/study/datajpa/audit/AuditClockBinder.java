@@ -0,0 +1,31 @@
+package study.datajpa.audit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.time.Clock;
+
+/**
+ * 스프링 Clock 빈을 static AuditClock 에 연결하고, 컨텍스트가 닫히면 기본 시계로 되돌린다.
+ * (테스트마다 다른 컨텍스트가 뜨고 닫혀도 이전 컨텍스트의 시계가 남지 않는다)
+ */
+class AuditClockBinder implements InitializingBean, DisposableBean {
+
+    private final Clock clock;
+
+    AuditClockBinder(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        AuditClock.setClock(clock);
+    }
+
+    @Override
+    public void destroy() {
+        if (AuditClock.getClock() == clock) {
+            AuditClock.reset();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package study.datajpa.audit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.auditing.DateTimeProvider;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.util.Optional;
+
+@Configuration
+public class AuditConfig {
+
+    @Bean
+    public Clock auditClock(@Value("${datajpa.audit.zone:}") String zone) {
+        return zone.isEmpty() ? Clock.systemDefaultZone() : Clock.system(ZoneId.of(zone));
+    }
+
+    @Bean
+    AuditClockBinder auditClockBinder(Clock auditClock) {
+        return new AuditClockBinder(auditClock);
+    }
+
+    //@CreatedDate, @LastModifiedDate (BaseEntity) 도 JpaBaseEntity 와 같은 AuditClock 을 사용한다. (binder 가 먼저 시계를 설정)
+    @Bean
+    public DateTimeProvider auditingDateTimeProvider(AuditClockBinder auditClockBinder) {
+        return () -> Optional.of(AuditClock.now());
+    }
+}
@@ -0,0 +1,35 @@
+package study.datajpa.audit;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * 트랜잭션 동안 한번만 계산하고 재사용하는 값 (트랜잭션이 끝나면 버린다) - 생성자/수정자 (TransactionScopedAuditorAware)
+ * 트랜잭션 동기화가 없으면 매번 계산한다.
+ */
+final class TransactionScoped {
+
+    private TransactionScoped() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T get(Object key, Supplier<T> supplier) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return supplier.get();
+        }
+        T value = (T) TransactionSynchronizationManager.getResource(key);
+        if (value == null) {
+            value = supplier.get();
+            TransactionSynchronizationManager.bindResource(key, value);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(key);
+                }
+            });
+        }
+        return value;
+    }
+}
@@ -0,0 +1,24 @@
+package study.datajpa.audit;
+
+import org.springframework.data.domain.AuditorAware;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * 생성자/수정자를 트랜잭션마다 한번만 구한다. (엔티티 저장마다 resolver 를 호출하지 않는다)
+ */
+public class TransactionScopedAuditorAware implements AuditorAware<String> {
+
+    private final Object auditorKey = new Object();
+    private final Supplier<String> resolver;
+
+    public TransactionScopedAuditorAware(Supplier<String> resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public Optional<String> getCurrentAuditor() {
+        return Optional.ofNullable(TransactionScoped.get(auditorKey, resolver));
+    }
+}
@@ -0,0 +1,79 @@
+package study.datajpa.cache;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 하이버네이트 2차 캐시 provider (JVM 로컬 메모리)
+ * region 마다 최대 엔트리 수(LRU)와 TTL 로 evict 하고 hit/miss 통계를 남긴다.
+ *
+ * hibernate.cache.region.factory_class = study.datajpa.cache.LocalCacheRegionFactory
+ * hibernate.cache.local.max_entries    = region 당 최대 엔트리 수 (기본 10000)
+ * hibernate.cache.local.ttl_seconds    = 엔트리 유효 시간 (기본 600, 0 이면 만료 없음)
+ */
+public class LocalCacheRegionFactory extends RegionFactoryTemplate {
+
+    public static final String MAX_ENTRIES = "hibernate.cache.local.max_entries";
+    public static final String TTL_SECONDS = "hibernate.cache.local.ttl_seconds";
+
+    private final Map<String, LocalCacheStorage> storages = new ConcurrentHashMap<>();
+    private int maxEntries;
+    private long ttlMillis;
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+        maxEntries = ConfigurationHelper.getInt(MAX_ENTRIES, configValues, 10_000);
+        ttlMillis = ConfigurationHelper.getLong(TTL_SECONDS, configValues, 600) * 1000;
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        storages.values().forEach(LocalCacheStorage::release);
+        storages.clear();
+    }
+
+    @Override
+    public long nextTimestamp() {
+        return System.currentTimeMillis(); // getTimeout() 기본값(60000ms)과 단위를 맞춘다.
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return storage(regionConfig.getRegionName(), maxEntries, ttlMillis);
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return storage(regionName, maxEntries, ttlMillis);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        // 테이블별 마지막 변경 시각 -> 쿼리 캐시 무효화 기준이라 evict/만료되면 안된다. (테이블 수만큼만 쌓인다)
+        return storage(regionName, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * region 이름별 hit/miss 통계
+     */
+    public Map<String, LocalCacheStats> getStatistics() {
+        Map<String, LocalCacheStats> statistics = new TreeMap<>();
+        storages.forEach((name, storage) -> statistics.put(name, storage.stats()));
+        return statistics;
+    }
+
+    private LocalCacheStorage storage(String regionName, int maxEntries, long ttlMillis) {
+        return storages.computeIfAbsent(regionName, name -> new LocalCacheStorage(name, maxEntries, ttlMillis));
+    }
+}
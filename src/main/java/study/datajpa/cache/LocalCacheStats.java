@@ -0,0 +1,28 @@
+package study.datajpa.cache;
+
+import lombok.Getter;
+
+@Getter
+public class LocalCacheStats {
+
+    private final String regionName;
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long putCount;
+    private final long evictionCount;
+
+    public LocalCacheStats(String regionName, int size, long hitCount, long missCount, long putCount, long evictionCount) {
+        this.regionName = regionName;
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public double getHitRatio() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0 : (double) hitCount / requests;
+    }
+}
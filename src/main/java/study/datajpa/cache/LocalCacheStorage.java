@@ -0,0 +1,119 @@
+package study.datajpa.cache;
+
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * region 하나의 저장소 (access order LinkedHashMap -> LRU)
+ */
+class LocalCacheStorage implements DomainDataStorageAccess {
+
+    private final String regionName;
+    private final long ttlMillis; // 0 이면 만료 없음
+    private final LongSupplier currentTimeMillis; // 테스트에서 시간을 직접 넘긴다.
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final Map<Object, Entry> entries;
+
+    LocalCacheStorage(String regionName, int maxEntries, long ttlMillis) {
+        this(regionName, maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    LocalCacheStorage(String regionName, int maxEntries, long ttlMillis, LongSupplier currentTimeMillis) {
+        this.regionName = regionName;
+        this.ttlMillis = ttlMillis;
+        this.currentTimeMillis = currentTimeMillis;
+        this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Object getFromCache(Object key, SharedSessionContractImplementor session) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(currentTimeMillis.getAsLong())) {
+            entries.remove(key);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    @Override
+    public synchronized void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+        long expiresAt = ttlMillis > 0 ? currentTimeMillis.getAsLong() + ttlMillis : Long.MAX_VALUE;
+        entries.put(key, new Entry(value, expiresAt));
+        puts.increment();
+    }
+
+    @Override
+    public void removeFromCache(Object key, SharedSessionContractImplementor session) {
+        evictData(key);
+    }
+
+    @Override
+    public void clearCache(SharedSessionContractImplementor session) {
+        evictData();
+    }
+
+    @Override
+    public synchronized boolean contains(Object key) {
+        Entry entry = entries.get(key);
+        return entry != null && !entry.isExpired(currentTimeMillis.getAsLong());
+    }
+
+    @Override
+    public synchronized void evictData() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized void evictData(Object key) {
+        entries.remove(key);
+    }
+
+    @Override
+    public synchronized void release() {
+        entries.clear();
+    }
+
+    synchronized LocalCacheStats stats() {
+        return new LocalCacheStats(regionName, entries.size(), hits.sum(), misses.sum(), puts.sum(), evictions.sum());
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package study.datajpa.changes;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.ChangeCounter;
+
+import javax.persistence.EntityManager;
+
+/**
+ * MemberChangeSequence 가 +1 할 change_counter row 를 시작할때 만들어 둔다.
+ * 커밋 직전에는 insert 하다 실패하면 트랜잭션 전체가 깨지므로 미리 만든다.
+ */
+class ChangeCounterInitializer implements InitializingBean {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+
+    ChangeCounterInitializer(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (em.find(ChangeCounter.class, MemberChangeSequence.COUNTER_NAME) == null) {
+                    em.persist(new ChangeCounter(MemberChangeSequence.COUNTER_NAME));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // 같은 DB 를 쓰는 다른 노드가 먼저 만들었다.
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package study.datajpa.changes;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.datajpa.config.HibernateIntegrators;
+
+import javax.persistence.EntityManager;
+
+@Configuration
+public class MemberChangeConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer memberChangeCustomizer() {
+        return HibernateIntegrators.append(new MemberChangeIntegrator());
+    }
+
+    @Bean
+    ChangeCounterInitializer changeCounterInitializer(EntityManager em, PlatformTransactionManager transactionManager) {
+        return new ChangeCounterInitializer(em, transactionManager);
+    }
+}
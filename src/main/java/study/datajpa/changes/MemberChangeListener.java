@@ -0,0 +1,39 @@
+package study.datajpa.changes;
+
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import study.datajpa.entity.Member;
+
+/**
+ * 저장/수정되는 회원에 이 트랜잭션의 token 을 change_tx 로 같이 저장한다. (MemberChangeSequence)
+ * insert/update SQL 에 들어갈 state 와 엔티티 필드를 같이 바꿔야 다음 flush 에서 다시 dirty 로 보지 않는다.
+ */
+public class MemberChangeListener implements PreInsertEventListener, PreUpdateEventListener {
+
+    private static final String CHANGE_TX = "changeTx";
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            mark(event.getPersister(), event.getEntity(), event.getState(), MemberChangeSequence.token(event.getSession()));
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            mark(event.getPersister(), event.getEntity(), event.getState(), MemberChangeSequence.token(event.getSession()));
+        }
+        return false;
+    }
+
+    private void mark(EntityPersister persister, Object entity, Object[] state, long token) {
+        int index = persister.getEntityMetamodel().getPropertyIndex(CHANGE_TX);
+        state[index] = token;
+        persister.setPropertyValue(entity, index, token);
+    }
+}
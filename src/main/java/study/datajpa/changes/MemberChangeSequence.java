@@ -0,0 +1,132 @@
+package study.datajpa.changes;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 회원 변경에 커밋 순서대로 번호(change_seq)를 매긴다. (changesSince)
+ *
+ * 트랜잭션 안에서 바뀐 회원에는 트랜잭션마다 다른 token 을 change_tx 에 같이 저장해 두고 (MemberChangeListener, bulk update),
+ * 커밋 직전(flush 이후)에 change_counter 를 +1 한 값으로 그 token 의 회원에 change_seq 를 매긴다.
+ * change_counter 의 row lock 은 커밋까지 유지되므로 먼저 번호를 받은 트랜잭션이 커밋해야 다음 트랜잭션이 번호를 받는다.
+ * -> 번호 순서 = 커밋 순서, watermark 보다 작은 번호가 나중에 커밋되는 일이 없다. (트랜잭션 시작/flush 시각과 상관없다)
+ *
+ * 회원을 바꾼 트랜잭션끼리는 change_counter row lock 을 잡은 뒤부터 커밋이 끝날 때까지 직렬화된다.
+ * -> 회원 변경 커밋 처리량의 상한은 1 / (ASSIGN + 커밋 시간) 이다. (커밋에 1ms 걸리면 노드 수와 상관없이 초당 약 1000 트랜잭션)
+ *    조회나 회원을 바꾸지 않는 트랜잭션은 영향이 없다. 측정 : MemberChangeCommitBenchmark (스레드 수를 늘려도 updateMember 만 처리량이 늘지 않는다)
+ *
+ * ASSIGN 은 SQL 로 바로 바꾸므로 2차 캐시에는 change_seq 가 비어 있는 회원이 남는다. (changesSince 의 watermark 가 엔티티 값으로 만들어진다)
+ * 그래서 커밋이 끝난 뒤 번호를 매긴 회원을 2차 캐시에서 지운다. (커밋할때 엔티티 action 이 캐시에 넣은 값보다 나중에 실행된다)
+ */
+public final class MemberChangeSequence {
+
+    public static final String COUNTER_NAME = "member";
+
+    private static final String NEXT_VALUE = "update change_counter set value = value + 1 where name = ?";
+    private static final String CURRENT_VALUE = "select value from change_counter where name = ?";
+    private static final String ASSIGN = "update member set change_seq = ?, change_tx = null where change_tx = ?";
+    private static final String ASSIGNED_IDS = "select member_id from member where change_tx = ?";
+
+    // 세션(= 트랜잭션)마다 하나, 세션이 정리되면 같이 정리된다.
+    private static final Map<SharedSessionContractImplementor, Long> TOKENS = new WeakHashMap<>();
+
+    private MemberChangeSequence() {
+    }
+
+    /**
+     * bulk update 에서 member.change_tx 에 넣을 값
+     */
+    public static long token(EntityManager em) {
+        return token(em.unwrap(SessionImplementor.class));
+    }
+
+    static long token(SharedSessionContractImplementor session) {
+        synchronized (TOKENS) {
+            Long token = TOKENS.get(session);
+            if (token != null) {
+                return token;
+            }
+            // 동시에 커밋 전인 트랜잭션끼리만 겹치지 않으면 된다.
+            long created = ThreadLocalRandom.current().nextLong();
+            TOKENS.put(session, created);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> assign(s, created));
+            // rollback 되어도 다음 트랜잭션은 새 token 을 받는다.
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> release(s));
+            return created;
+        }
+    }
+
+    private static void release(SharedSessionContractImplementor session) {
+        synchronized (TOKENS) {
+            TOKENS.remove(session);
+        }
+    }
+
+    private static void assign(SessionImplementor session, long token) {
+        release(session);
+        boolean cached = session.getFactory().getSessionFactoryOptions().isSecondLevelCacheEnabled();
+        List<Long> ids = new ArrayList<>();
+        session.doWork(connection -> {
+            if (cached) {
+                ids.addAll(assignedIds(connection, token));
+            }
+            long seq = nextValue(connection);
+            try (PreparedStatement ps = connection.prepareStatement(ASSIGN)) {
+                ps.setLong(1, seq);
+                ps.setLong(2, token);
+                ps.executeUpdate();
+            }
+        });
+        if (!ids.isEmpty()) {
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, s) -> evict(s, ids));
+        }
+    }
+
+    // change_counter 락을 잡기 전에 읽는다. (같은 token 의 회원은 이 트랜잭션만 바꾸므로 그 사이에 달라지지 않는다)
+    private static List<Long> assignedIds(Connection connection, long token) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(ASSIGNED_IDS)) {
+            ps.setLong(1, token);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void evict(SharedSessionContractImplementor session, List<Long> ids) {
+        ids.forEach(id -> session.getFactory().getCache().evictEntityData(Member.class, id));
+    }
+
+    private static long nextValue(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(NEXT_VALUE)) {
+            ps.setString(1, COUNTER_NAME);
+            if (ps.executeUpdate() != 1) {
+                throw new IllegalStateException("change_counter '" + COUNTER_NAME + "' is missing");
+            }
+        }
+        try (PreparedStatement ps = connection.prepareStatement(CURRENT_VALUE)) {
+            ps.setString(1, COUNTER_NAME);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+}
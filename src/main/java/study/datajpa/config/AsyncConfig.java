@@ -0,0 +1,107 @@
+package study.datajpa.config;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * @Async repository 메서드 전용 스레드 풀
+ * 톰캣 요청 스레드가 DB 지연에 묶이지 않게 하고, 풀과 큐가 모두 차면 바로 거절한다. (TaskRejectedException -> 503)
+ *
+ * Spring MVC 비동기 처리(StreamingResponseBody export)도 전용 풀에서 실행한다.
+ * ThreadPoolTaskExecutor 빈을 등록하면 Boot 의 applicationTaskExecutor 가 만들어지지 않아서
+ * 설정하지 않으면 요청마다 스레드를 새로 만드는 SimpleAsyncTaskExecutor 로 실행된다.
+ *
+ * 세 풀의 스레드는 각자 커넥션을 잡으므로 합이 커넥션 풀 크기보다 작아야 한다.
+ * (비동기 조회가 커넥션을 모두 잡고 count 를 기다리면 count 는 커넥션을 얻지 못한다)
+ */
+@EnableAsync
+@Configuration
+public class AsyncConfig implements InitializingBean, WebMvcConfigurer {
+
+    @Value("${datajpa.async.pool-size:16}")
+    private int repositoryPoolSize;
+
+    @Value("${datajpa.paging.count-pool-size:4}")
+    private int countPoolSize;
+
+    @Value("${datajpa.mvc-async.pool-size:4}")
+    private int mvcPoolSize;
+
+    @Value("${datajpa.mvc-async.queue-capacity:10}")
+    private int mvcQueueCapacity;
+
+    @Value("${datajpa.mvc-async.timeout-millis:600000}")
+    private long mvcTimeoutMillis;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (repositoryPoolSize + countPoolSize + mvcPoolSize >= connectionPoolSize) {
+            throw new IllegalStateException("datajpa.async.pool-size (" + repositoryPoolSize + ") + datajpa.paging.count-pool-size ("
+                    + countPoolSize + ") + datajpa.mvc-async.pool-size (" + mvcPoolSize
+                    + ") must be less than spring.datasource.hikari.maximum-pool-size (" + connectionPoolSize + ")");
+        }
+    }
+
+    /**
+     * StreamingResponseBody, Callable 을 실행할 풀과 기본 timeout (DeferredResult 는 AsyncResults 에서 요청별 timeout 을 준다)
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+        configurer.setDefaultTimeout(mvcTimeoutMillis);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mvcPoolSize);
+        executor.setMaxPoolSize(mvcPoolSize);
+        executor.setQueueCapacity(mvcQueueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor repositoryExecutor(@Value("${datajpa.async.pool-size:16}") int poolSize,
+                                                     @Value("${datajpa.async.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("repository-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * CountMode.PARALLEL 의 count 쿼리 전용 풀
+     * repositoryExecutor 와 분리해서, 비동기 조회가 자기 count 를 기다리며 풀을 모두 점유하는 상황을 막는다.
+     * 큐가 없으므로 여유가 없으면 PageCountSupport 가 순차 실행으로 돌아간다.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor pageCountExecutor(@Value("${datajpa.paging.count-pool-size:4}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("page-count-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
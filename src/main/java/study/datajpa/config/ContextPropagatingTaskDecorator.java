@@ -0,0 +1,17 @@
+package study.datajpa.config;
+
+import org.springframework.core.task.TaskDecorator;
+import study.datajpa.diagnostics.StatementCounter;
+
+/**
+ * 작업을 제출한 스레드의 ThreadLocal 문맥을 실행 스레드로 넘긴다.
+ * - StatementCounter scope : @Async 조회의 SQL 도 요청의 N+1 검사에 포함
+ * - 마지막 쓰기 커밋 시각 : 방금 쓴 데이터를 @Async 로 읽어도 replica 가 아니라 primary 에서 읽는다. (ReplicationRoutingDataSource)
+ */
+public class ContextPropagatingTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return StatementCounter.propagate(ReplicationRoutingDataSource.propagate(runnable));
+    }
+}
@@ -0,0 +1,34 @@
+package study.datajpa.config;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * hibernate.integrator_provider 는 하나만 설정할 수 있어서 이미 등록된 provider 가 있으면 이어 붙인다.
+ * (HibernatePropertiesCustomizer 의 실행 순서와 상관없이 모두 등록된다)
+ */
+public final class HibernateIntegrators {
+
+    private static final String INTEGRATOR_PROVIDER = "hibernate.integrator_provider";
+
+    private HibernateIntegrators() {
+    }
+
+    public static HibernatePropertiesCustomizer append(Integrator integrator) {
+        return properties -> {
+            IntegratorProvider previous = (IntegratorProvider) properties.get(INTEGRATOR_PROVIDER);
+            properties.put(INTEGRATOR_PROVIDER, (IntegratorProvider) () -> {
+                List<Integrator> integrators = new ArrayList<>();
+                if (previous != null) {
+                    integrators.addAll(previous.getIntegrators());
+                }
+                integrators.add(integrator);
+                return integrators;
+            });
+        };
+    }
+}
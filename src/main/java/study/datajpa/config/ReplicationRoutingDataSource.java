@@ -0,0 +1,95 @@
+package study.datajpa.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 읽기 전용 트랜잭션은 replica, 나머지는 primary 로 보낸다.
+ * 트랜잭션 시작 시점이 아니라 첫 SQL 시점에 커넥션을 얻어야 readOnly 플래그를 볼 수 있으므로 LazyConnectionDataSourceProxy 로 감싸서 사용한다.
+ *
+ * read-your-writes
+ * - 쓰기 트랜잭션 안에서 호출되는 readOnly 메서드는 바깥 트랜잭션에 참여하므로 primary 를 그대로 쓴다.
+ * - 쓰기 트랜잭션이 커밋된 뒤 readYourWritesMillis 동안은 같은 스레드의 읽기 전용 트랜잭션도 primary 로 보낸다. (replica 지연 대비)
+ * - 커밋 시각은 ThreadLocal 이므로 @Async 로 넘긴 조회는 propagate 로 감싸야 같은 규칙을 따른다. (ContextPropagatingTaskDecorator)
+ */
+public class ReplicationRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica";
+
+    private static final Object WRITE_MARKER = new Object();
+    private static final ThreadLocal<Long> lastWriteAt = new ThreadLocal<>();
+
+    private final long readYourWritesMillis;
+
+    public ReplicationRoutingDataSource(DataSource primary, DataSource replica, long readYourWritesMillis) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        targets.put(REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.readYourWritesMillis = readYourWritesMillis;
+        afterPropertiesSet();
+    }
+
+    /**
+     * 제출한 스레드의 마지막 쓰기 커밋 시각을 실행 스레드로 넘긴다. 작업이 끝나면 실행 스레드의 원래 값으로 되돌린다.
+     */
+    public static Runnable propagate(Runnable task) {
+        Long submitterLastWrite = lastWriteAt.get();
+        if (submitterLastWrite == null) {
+            return task;
+        }
+        return () -> {
+            Long previous = lastWriteAt.get();
+            lastWriteAt.set(submitterLastWrite);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    lastWriteAt.remove();
+                } else {
+                    lastWriteAt.set(previous);
+                }
+            }
+        };
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARY; // 트랜잭션 밖 (ddl, 초기화 등)
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            markWriteOnCommit();
+            return PRIMARY;
+        }
+        Long lastWrite = lastWriteAt.get();
+        if (lastWrite != null && System.currentTimeMillis() - lastWrite < readYourWritesMillis) {
+            return PRIMARY;
+        }
+        return REPLICA;
+    }
+
+    private void markWriteOnCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(WRITE_MARKER)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(WRITE_MARKER, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(WRITE_MARKER);
+                if (status == STATUS_COMMITTED) {
+                    lastWriteAt.set(System.currentTimeMillis());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,86 @@
+package study.datajpa.config;
+
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 하이버네이트 이벤트 리스너 안에서 (flush 중) 만든 SQL 을 모아 두었다가 flush 가 끝날때 세션 커넥션의 JDBC batch 로 실행한다.
+ * 리스너에서 바로 실행하면 statement 를 준비할때마다 하이버네이트의 insert/update batch 가 끊긴다.
+ *
+ * 추가한 순서대로 실행하고, 같은 SQL 이 이어지면 PreparedStatement 하나에 addBatch 한다. (hibernate.jdbc.batch_size 단위로 executeBatch)
+ * HQL 을 쓰면 flush 가 다시 일어나므로 JDBC 를 직접 쓰고, 같은 트랜잭션이라 롤백되면 같이 롤백된다.
+ * 리스너는 FLUSH / AUTO_FLUSH 이벤트 (기본 flush 리스너 다음) 에서 execute 를 호출한다.
+ */
+public class SessionJdbcBatch {
+
+    // 세션은 한 스레드에서만 쓰므로 세션별 목록은 동기화하지 않는다. flush 가 실패해서 남은 목록은 세션과 함께 버려진다.
+    private final Map<SharedSessionContractImplementor, Deque<Run>> pending = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public void add(SharedSessionContractImplementor session, String sql, StatementSetter setter) {
+        Deque<Run> runs = pending.computeIfAbsent(session, key -> new ArrayDeque<>());
+        Run last = runs.peekLast();
+        if (last == null || !last.sql.equals(sql)) {
+            last = new Run(sql);
+            runs.addLast(last);
+        }
+        last.setters.add(setter);
+    }
+
+    public void execute(SharedSessionContractImplementor session) {
+        Deque<Run> runs = pending.remove(session);
+        if (runs == null) {
+            return;
+        }
+        int batchSize = Math.max(1, session.getFactory().getSessionFactoryOptions().getJdbcBatchSize());
+        for (Run run : runs) {
+            execute(session, run, batchSize);
+        }
+    }
+
+    private void execute(SharedSessionContractImplementor session, Run run, int batchSize) {
+        JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        PreparedStatement ps = jdbc.getStatementPreparer().prepareStatement(run.sql);
+        try {
+            int count = 0;
+            for (StatementSetter setter : run.setters) {
+                setter.set(ps);
+                ps.addBatch();
+                if (++count % batchSize == 0) {
+                    ps.executeBatch();
+                }
+            }
+            if (count % batchSize != 0) {
+                ps.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(e, "could not execute batch", run.sql);
+        } finally {
+            jdbc.getLogicalConnection().getResourceRegistry().release(ps);
+            jdbc.afterStatementExecution();
+        }
+    }
+
+    private static class Run {
+        private final String sql;
+        private final List<StatementSetter> setters = new ArrayList<>();
+
+        Run(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    @FunctionalInterface
+    public interface StatementSetter {
+        void set(PreparedStatement ps) throws SQLException;
+    }
+}
@@ -0,0 +1,36 @@
+package study.datajpa.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * CompletableFuture 를 요청별 timeout 이 있는 DeferredResult 로 바꾼다.
+ * 요청 스레드는 바로 반환되고 결과는 repository 스레드가 채운다.
+ */
+final class AsyncResults {
+
+    private AsyncResults() {
+    }
+
+    static <T> DeferredResult<T> withTimeout(CompletableFuture<T> future, long timeoutMillis) {
+        DeferredResult<T> result = new DeferredResult<>(timeoutMillis);
+        result.onTimeout(() -> {
+            // 아직 큐에 있는 작업만 실행되지 않는다. (CompletableFuture 는 실행 중인 스레드를 interrupt 하지 않는다)
+            // 이미 실행 중인 쿼리는 javax.persistence.query.timeout 으로 끊는다.
+            future.cancel(false);
+            result.setErrorResult(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "repository call timed out"));
+        });
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                result.setResult(value);
+            } else {
+                result.setErrorResult(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+        return result;
+    }
+}
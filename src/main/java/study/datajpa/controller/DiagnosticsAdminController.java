@@ -0,0 +1,72 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.diagnostics.HibernateStats;
+import study.datajpa.diagnostics.RepositoryMetrics;
+import study.datajpa.diagnostics.SlowQueryLog;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 운영 진단 설정 변경/초기화 API
+ * 인증이 없으므로 datajpa.diagnostics.write-enabled=true 일때만 등록한다. (기본 false)
+ * 운영에서 켤 때는 management 포트처럼 외부에 열리지 않는 경로에서만 접근하게 한다.
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "datajpa.diagnostics.write-enabled", havingValue = "true")
+public class DiagnosticsAdminController {
+
+    private final EntityManagerFactory emf;
+    private final RepositoryMetrics repositoryMetrics;
+    private final SlowQueryLog slowQueryLog;
+
+    @DeleteMapping("/diagnostics/repositories")
+    public void resetRepositories() {
+        repositoryMetrics.reset();
+    }
+
+    //재시작 없이 통계 수집 on/off (수집 중에는 쿼리마다 약간의 비용이 있다)
+    @PutMapping("/diagnostics/hibernate")
+    public HibernateStats enableHibernateStatistics(@RequestParam("enabled") boolean enabled) {
+        Statistics statistics = statistics();
+        statistics.setStatisticsEnabled(enabled);
+        return new HibernateStats(statistics);
+    }
+
+    @DeleteMapping("/diagnostics/hibernate")
+    public void resetHibernateStatistics() {
+        statistics().clear();
+    }
+
+    //켜면 이후에 얻는 커넥션부터 시간을 잰다.
+    @PutMapping("/diagnostics/slow-queries")
+    public Map<String, Object> configureSlowQueries(@RequestParam(value = "enabled", required = false) Boolean enabled,
+                                                    @RequestParam(value = "thresholdMillis", required = false) Long thresholdMillis) {
+        slowQueryLog.configure(
+                enabled != null ? enabled : slowQueryLog.isEnabled(),
+                thresholdMillis != null ? thresholdMillis : slowQueryLog.getThresholdMillis());
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("enabled", slowQueryLog.isEnabled());
+        settings.put("thresholdMillis", slowQueryLog.getThresholdMillis());
+        return settings;
+    }
+
+    @DeleteMapping("/diagnostics/slow-queries")
+    public void clearSlowQueries() {
+        slowQueryLog.clear();
+    }
+
+    private Statistics statistics() {
+        return emf.unwrap(SessionFactoryImplementor.class).getStatistics();
+    }
+}
@@ -0,0 +1,80 @@
+package study.datajpa.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.datajpa.cache.LocalCacheRegionFactory;
+import study.datajpa.cache.LocalCacheStats;
+import study.datajpa.diagnostics.HibernateStats;
+import study.datajpa.diagnostics.RepositoryMethodStats;
+import study.datajpa.diagnostics.RepositoryMetrics;
+import study.datajpa.diagnostics.SlowQueryLog;
+import study.datajpa.outbox.OutboxRelay;
+import study.datajpa.service.OptimisticRetry;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 운영 진단용 조회 API
+ * 설정 변경/초기화 API 는 DiagnosticsAdminController (datajpa.diagnostics.write-enabled=true 일때만 등록)
+ */
+@RestController
+@RequiredArgsConstructor
+public class DiagnosticsController {
+
+    private final EntityManagerFactory emf;
+    private final RepositoryMetrics repositoryMetrics;
+    private final OptimisticRetry optimisticRetry;
+    private final SlowQueryLog slowQueryLog;
+    private final OutboxRelay outboxRelay;
+
+    //2차 캐시 region 별 hit/miss
+    @GetMapping("/diagnostics/cache")
+    public Map<String, LocalCacheStats> cache() {
+        RegionFactory regionFactory = emf.unwrap(SessionFactoryImplementor.class).getCache().getRegionFactory();
+        if (regionFactory instanceof LocalCacheRegionFactory) {
+            return ((LocalCacheRegionFactory) regionFactory).getStatistics();
+        }
+        return Collections.emptyMap(); // 캐시 비활성화
+    }
+
+    //repository 메서드별 호출 수, latency 히스토그램, 조회 row 수, 실행 SQL 수
+    @GetMapping("/diagnostics/repositories")
+    public Map<String, RepositoryMethodStats> repositories() {
+        return repositoryMetrics.snapshot();
+    }
+
+    //낙관적 락 충돌 / 재시도 소진 횟수
+    @GetMapping("/diagnostics/optimistic-locks")
+    public Map<String, Long> optimisticLocks() {
+        return optimisticRetry.getStatistics();
+    }
+
+    //outbox 발행 수 / relay 실패 수 / 밀린 이벤트 수
+    @GetMapping("/diagnostics/outbox")
+    public Map<String, Long> outbox() {
+        return outboxRelay.getStatistics();
+    }
+
+    //Hibernate Statistics - 쿼리별 실행 수/시간, 엔티티 load/fetch, flush, 2차 캐시 hit ratio
+    @GetMapping("/diagnostics/hibernate")
+    public HibernateStats hibernate() {
+        return new HibernateStats(statistics());
+    }
+
+    //threshold 를 넘은 최근 SQL (리터럴 가림)
+    @GetMapping("/diagnostics/slow-queries")
+    public List<SlowQueryLog.SlowQuery> slowQueries() {
+        return slowQueryLog.getRecent();
+    }
+
+    private Statistics statistics() {
+        return emf.unwrap(SessionFactoryImplementor.class).getStatistics();
+    }
+}
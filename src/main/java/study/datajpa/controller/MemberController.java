@@ -1,28 +1,66 @@
 package study.datajpa.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.repository.CountMode;
+import study.datajpa.repository.KeysetOrder;
+import study.datajpa.repository.KeysetWindow;
+import study.datajpa.repository.MemberQueryRepository;
 import study.datajpa.repository.MemberRepository;
 
 import javax.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_PAGE_SIZE = 2000; // spring.data.web.pageable.max-page-size 와 맞춘다.
+
     private final MemberRepository memberRepository;
+    private final MemberQueryRepository memberQueryRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${datajpa.async.timeout-millis:3000}")
+    private long asyncTimeoutMillis;
 
     @GetMapping("/members/{id}")
-    public String findMember(@PathVariable("id") Long id) {
-        Member member = memberRepository.findById(id).get();
-        return member.getUsername();
+    public DeferredResult<String> findMember(@PathVariable("id") Long id) {
+        CompletableFuture<String> username = memberRepository.findAsyncById(id)
+                .thenApply(member -> {
+                    if (member == null) {
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "member not found: " + id);
+                    }
+                    return member.getUsername();
+                });
+        return AsyncResults.withTimeout(username, asyncTimeoutMillis);
     }
 
     /**
@@ -34,18 +72,90 @@ public class MemberController {
     }
 
     @GetMapping("/members")
-    public Page<MemberDto> list(@PageableDefault(size = 5) Pageable pageable) {
-        Page<Member> page = memberRepository.findAll(pageable);
+    public DeferredResult<Page<MemberDto>> list(@PageableDefault(size = 5) Pageable pageable) {
+        // count 쿼리는 다른 커넥션에서 content 쿼리와 동시에 실행된다.
+        CompletableFuture<Page<MemberDto>> page = memberRepository.findMemberPageAsync(pageable, CountMode.PARALLEL)
+//                .thenApply(p -> p.map(member -> new MemberDto(member)));
+                .thenApply(p -> p.map(member -> new MemberDto(member.getId(), member.getUsername(), null)));
+        return AsyncResults.withTimeout(page, asyncTimeoutMillis);
+    }
+
+    /**
+     * keyset(seek) 페이징 (offset, count 쿼리 없음 -> 깊은 페이지도 첫 페이지와 비용이 같다)
+     * ex) /members?mode=keyset&size=20&order=USERNAME_ID&cursor={이전 응답의 nextCursor}
+     */
+    @GetMapping(value = "/members", params = "mode=keyset")
+    public KeysetWindow<MemberDto> listKeyset(@RequestParam(value = "cursor", required = false) String cursor,
+                                              @RequestParam(value = "size", defaultValue = "5") int size,
+                                              @RequestParam(value = "order", defaultValue = "ID") KeysetOrder order) {
+        int windowSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        try {
+            return memberRepository.findMemberWindow(order, cursor, windowSize)
+                    .map(member -> new MemberDto(member.getId(), member.getUsername(), null));
+        } catch (InvalidDataAccessApiUsageException | IllegalArgumentException e) { // 잘못된 cursor
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 전체 회원 export (format = ndjson | csv)
+     * 조회하는 대로 응답에 바로 쓰기 때문에 회원 수와 상관없이 메모리 사용량이 일정하다.
+     */
+    @GetMapping("/members/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unsupported format: " + format);
+        }
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write("id,username,teamName\n");
+            }
+            memberQueryRepository.exportMembers(member -> writeLine(writer, member, csv));
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    private void writeLine(Writer writer, MemberDto member, boolean csv) {
+        try {
+            if (csv) {
+                writer.write(member.getId() + "," + csvValue(member.getUsername()) + "," + csvValue(member.getTeamName()) + "\n");
+            } else {
+                writer.write(objectMapper.writeValueAsString(member));
+                writer.write("\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
 
-//        Page<MemberDto> map = page.map(member -> new MemberDto(member));
-        Page<MemberDto> map = page.map(member -> new MemberDto(member.getId(), member.getUsername(), null));
-        return map;
+    //repository 스레드 풀과 큐가 가득 찬 경우
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<String> rejected(TaskRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("repository executor is saturated");
     }
 
 //    @PostConstruct
     public void init() {
+        List<Member> members = new ArrayList<>();
         for (int i = 0; i < 100; i++) {
-            memberRepository.save(new Member("user" + i));
+            members.add(new Member("user" + i));
         }
+        memberRepository.saveAllBatched(members, 100);
     }
 }
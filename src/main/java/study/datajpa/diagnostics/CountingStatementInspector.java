@@ -0,0 +1,22 @@
+package study.datajpa.diagnostics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * 하이버네이트가 실행하는 모든 SQL 을 StatementCounter 에 기록하고, 실행 계획 확인 대상을 QueryPlanVerifier 에 넘긴다. (SQL 은 바꾸지 않는다)
+ */
+public class CountingStatementInspector implements StatementInspector {
+
+    private final QueryPlanVerifier queryPlanVerifier;
+
+    public CountingStatementInspector(QueryPlanVerifier queryPlanVerifier) {
+        this.queryPlanVerifier = queryPlanVerifier;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        StatementCounter.record(sql);
+        queryPlanVerifier.record(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,8 @@
+package study.datajpa.diagnostics;
+
+public class FullTableScanDetectedException extends RuntimeException {
+
+    public FullTableScanDetectedException(String message) {
+        super("full table scan detected\n" + message);
+    }
+}
@@ -0,0 +1,15 @@
+package study.datajpa.diagnostics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HibernateDiagnosticsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(QueryPlanVerifier queryPlanVerifier) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new CountingStatementInspector(queryPlanVerifier));
+    }
+}
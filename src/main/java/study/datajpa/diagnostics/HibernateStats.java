@@ -0,0 +1,81 @@
+package study.datajpa.diagnostics;
+
+import lombok.Getter;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Hibernate Statistics 스냅샷 (/diagnostics/hibernate)
+ * 쿼리별 통계는 총 실행 시간 순으로 정렬한다.
+ */
+@Getter
+public class HibernateStats {
+
+    private final boolean enabled;
+    private final long queryExecutionCount;
+    private final long queryExecutionMaxTime;
+    private final String queryExecutionMaxTimeQueryString;
+    private final long prepareStatementCount;
+    private final long entityLoadCount;
+    private final long entityFetchCount;
+    private final long entityInsertCount;
+    private final long entityUpdateCount;
+    private final long entityDeleteCount;
+    private final long collectionLoadCount;
+    private final long collectionFetchCount;
+    private final long flushCount;
+    private final long optimisticFailureCount;
+    private final long secondLevelCacheHitCount;
+    private final long secondLevelCacheMissCount;
+    private final long secondLevelCachePutCount;
+    private final long queryCacheHitCount;
+    private final long queryCacheMissCount;
+    private final long queryPlanCacheHitCount;
+    private final long queryPlanCacheMissCount;
+    private final List<QueryStats> queries;
+
+    public HibernateStats(Statistics statistics) {
+        this.enabled = statistics.isStatisticsEnabled();
+        this.queryExecutionCount = statistics.getQueryExecutionCount();
+        this.queryExecutionMaxTime = statistics.getQueryExecutionMaxTime();
+        this.queryExecutionMaxTimeQueryString = statistics.getQueryExecutionMaxTimeQueryString();
+        this.prepareStatementCount = statistics.getPrepareStatementCount();
+        this.entityLoadCount = statistics.getEntityLoadCount();
+        this.entityFetchCount = statistics.getEntityFetchCount();
+        this.entityInsertCount = statistics.getEntityInsertCount();
+        this.entityUpdateCount = statistics.getEntityUpdateCount();
+        this.entityDeleteCount = statistics.getEntityDeleteCount();
+        this.collectionLoadCount = statistics.getCollectionLoadCount();
+        this.collectionFetchCount = statistics.getCollectionFetchCount();
+        this.flushCount = statistics.getFlushCount();
+        this.optimisticFailureCount = statistics.getOptimisticFailureCount();
+        this.secondLevelCacheHitCount = statistics.getSecondLevelCacheHitCount();
+        this.secondLevelCacheMissCount = statistics.getSecondLevelCacheMissCount();
+        this.secondLevelCachePutCount = statistics.getSecondLevelCachePutCount();
+        this.queryCacheHitCount = statistics.getQueryCacheHitCount();
+        this.queryCacheMissCount = statistics.getQueryCacheMissCount();
+        this.queryPlanCacheHitCount = statistics.getQueryPlanCacheHitCount();
+        this.queryPlanCacheMissCount = statistics.getQueryPlanCacheMissCount();
+        this.queries = Arrays.stream(statistics.getQueries())
+                .map(query -> new QueryStats(query, statistics.getQueryStatistics(query)))
+                .sorted(Comparator.comparingLong(QueryStats::getTotalTime).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public double getSecondLevelCacheHitRatio() {
+        return ratio(secondLevelCacheHitCount, secondLevelCacheMissCount);
+    }
+
+    public double getQueryCacheHitRatio() {
+        return ratio(queryCacheHitCount, queryCacheMissCount);
+    }
+
+    private static double ratio(long hit, long miss) {
+        long requests = hit + miss;
+        return requests == 0 ? 0 : (double) hit / requests;
+    }
+}
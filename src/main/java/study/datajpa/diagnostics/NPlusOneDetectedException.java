@@ -0,0 +1,8 @@
+package study.datajpa.diagnostics;
+
+public class NPlusOneDetectedException extends RuntimeException {
+
+    public NPlusOneDetectedException(String message) {
+        super("N+1 select detected\n" + message);
+    }
+}
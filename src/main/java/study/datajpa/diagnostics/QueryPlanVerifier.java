@@ -0,0 +1,228 @@
+package study.datajpa.diagnostics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 대상 테이블을 조건(where)으로 조회하는 select 를 처음 실행될 때 한번씩 EXPLAIN 해서 full table scan 인지 확인한다.
+ * SQL 은 CountingStatementInspector 가 모으고, EXPLAIN 은 요청이 끝난 뒤 백그라운드 스레드에서 (StatementCountingFilter) 또는 테스트에서 verifyPending() 으로 실행한다.
+ * EXPLAIN 마다 커넥션을 하나 더 쓰므로 기본은 꺼져 있다. 개발/테스트에서만 datajpa.query-plan.enabled 로 켠다.
+ *
+ * full scan 판단 : H2 "tableScan", PostgreSQL "Seq Scan", MySQL type = ALL
+ * (데이터가 아주 적으면 PostgreSQL/MySQL 은 인덱스가 있어도 full scan 을 고를 수 있다.)
+ */
+@Slf4j
+@Component
+public class QueryPlanVerifier implements DisposableBean {
+
+    private static final int MAX_TRACKED_STATEMENTS = 1000;
+    private static final Pattern TABLE_REFERENCE = Pattern.compile("\\b(?:from|join)\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("(\\w+)\\.tableScan");
+    private static final Pattern POSTGRES_SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final boolean failOnTableScan;
+    private final Set<String> tables;
+
+    private final Map<String, Boolean> tracked = new ConcurrentHashMap<>();
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final Map<String, String> tableScans = new ConcurrentHashMap<>(); // sql -> full scan 테이블
+    private final AtomicBoolean capReached = new AtomicBoolean(); // 한도에 걸리면 한번만 로그를 남긴다.
+
+    // 요청 스레드를 붙잡지 않도록 EXPLAIN 은 한 스레드에서 실행한다. 한번 실행에 pending 을 모두 비우므로 대기 작업은 하나면 충분하다.
+    private final ExecutorService background = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(1), runnable -> {
+        Thread thread = new Thread(runnable, "query-plan-verifier");
+        thread.setDaemon(true);
+        return thread;
+    }, new ThreadPoolExecutor.DiscardPolicy());
+
+    public QueryPlanVerifier(DataSource dataSource,
+                             @Value("${datajpa.query-plan.enabled:false}") boolean enabled,
+                             @Value("${datajpa.query-plan.fail-on-table-scan:false}") boolean failOnTableScan,
+                             @Value("${datajpa.query-plan.tables:member}") String[] tables) {
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.failOnTableScan = failOnTableScan;
+        this.tables = new HashSet<>();
+        Arrays.stream(tables).map(t -> t.trim().toLowerCase(Locale.ROOT)).forEach(this.tables::add);
+    }
+
+    // 하이버네이트 statement inspector 에서 호출 (SQL 실행 경로이므로 큐에 넣기만 한다)
+    void record(String sql) {
+        if (!enabled) {
+            return;
+        }
+        if (tracked.size() >= MAX_TRACKED_STATEMENTS) {
+            if (capReached.compareAndSet(false, true)) {
+                log.warn("query plan verifier tracked {} statements, new statements are not verified until reset()", MAX_TRACKED_STATEMENTS);
+            }
+            return;
+        }
+        String normalized = StatementCounter.normalize(sql);
+        if (isCandidate(normalized) && tracked.putIfAbsent(normalized, Boolean.TRUE) == null) {
+            pending.add(normalized);
+        }
+    }
+
+    /**
+     * 아직 확인하지 않은 select 를 백그라운드 스레드에서 EXPLAIN 한다. full scan 은 로그만 남기고 fail-on-table-scan 이어도 예외를 던지지 않는다.
+     */
+    public void verifyPendingInBackground() {
+        if (!enabled || pending.isEmpty()) {
+            return;
+        }
+        background.execute(() -> {
+            try {
+                verify();
+            } catch (RuntimeException e) {
+                log.warn("query plan verification failed", e);
+            }
+        });
+    }
+
+    /**
+     * 아직 확인하지 않은 select 를 EXPLAIN 한다.
+     * @return 이번에 새로 발견한 full scan (sql -> 테이블)
+     * @throws FullTableScanDetectedException fail-on-table-scan 이 켜져 있고 full scan 을 발견하면
+     */
+    public Map<String, String> verifyPending() {
+        Map<String, String> found = verify();
+        if (failOnTableScan && !found.isEmpty()) {
+            throw new FullTableScanDetectedException(describe(found));
+        }
+        return found;
+    }
+
+    private synchronized Map<String, String> verify() {
+        Map<String, String> found = new LinkedHashMap<>();
+        if (pending.isEmpty()) {
+            return found;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            String sql;
+            while ((sql = pending.poll()) != null) {
+                String table = findTableScan(connection, product, sql);
+                if (table != null) {
+                    found.put(sql, table);
+                    tableScans.put(sql, table);
+                    log.warn("full table scan on {} : {}", table, sql);
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("query plan verification failed", e);
+        }
+        return found;
+    }
+
+    public void assertNoTableScans() {
+        verifyPending();
+        if (!tableScans.isEmpty()) {
+            throw new FullTableScanDetectedException(describe(tableScans));
+        }
+    }
+
+    public Map<String, String> getTableScans() {
+        return Collections.unmodifiableMap(tableScans);
+    }
+
+    public void reset() {
+        tableScans.clear();
+        tracked.clear();
+        pending.clear();
+        capReached.set(false);
+    }
+
+    @Override
+    public void destroy() {
+        background.shutdownNow();
+    }
+
+    /**
+     * @return full scan 하는 대상 테이블, 없으면 null
+     */
+    String findTableScan(Connection connection, String product, String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("explain " + sql)) {
+            int parameterCount = ps.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameterCount; i++) {
+                ps.setObject(i, null); // 값과 상관없이 인덱스 사용 여부만 본다.
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return "MySQL".equals(product) || "MariaDB".equals(product)
+                        ? mysqlTableScan(rs)
+                        : textPlanTableScan(rs, "PostgreSQL".equals(product) ? POSTGRES_SEQ_SCAN : H2_TABLE_SCAN);
+            }
+        }
+    }
+
+    private String textPlanTableScan(ResultSet rs, Pattern scanPattern) throws SQLException {
+        while (rs.next()) {
+            Matcher matcher = scanPattern.matcher(rs.getString(1));
+            while (matcher.find()) {
+                String table = matcher.group(1).toLowerCase(Locale.ROOT);
+                if (tables.contains(table)) {
+                    return table;
+                }
+            }
+        }
+        return null;
+    }
+
+    private String mysqlTableScan(ResultSet rs) throws SQLException {
+        while (rs.next()) {
+            String table = rs.getString("table");
+            if ("ALL".equals(rs.getString("type")) && table != null && tables.contains(table.toLowerCase(Locale.ROOT))) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    private boolean isCandidate(String sql) {
+        if (!sql.regionMatches(true, 0, "select", 0, 6) || !sql.toLowerCase(Locale.ROOT).contains(" where ")) {
+            return false;
+        }
+        Matcher matcher = TABLE_REFERENCE.matcher(sql);
+        while (matcher.find()) {
+            if (tables.contains(matcher.group(1).toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String describe(Map<String, String> scans) {
+        List<String> lines = new ArrayList<>();
+        scans.forEach((sql, table) -> lines.add(table + " : " + sql));
+        return String.join("\n", lines);
+    }
+}
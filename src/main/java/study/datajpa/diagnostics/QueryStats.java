@@ -0,0 +1,33 @@
+package study.datajpa.diagnostics;
+
+import lombok.Getter;
+import org.hibernate.stat.QueryStatistics;
+
+/**
+ * HQL/SQL 하나의 실행 통계 (Hibernate QueryStatistics)
+ */
+@Getter
+public class QueryStats {
+
+    private final String query;
+    private final long executionCount;
+    private final long executionRowCount;
+    private final long executionAvgTime;
+    private final long executionMaxTime;
+    private final long executionMinTime;
+    private final long totalTime;
+    private final long cacheHitCount;
+    private final long cacheMissCount;
+
+    QueryStats(String query, QueryStatistics statistics) {
+        this.query = query;
+        this.executionCount = statistics.getExecutionCount();
+        this.executionRowCount = statistics.getExecutionRowCount();
+        this.executionAvgTime = statistics.getExecutionAvgTime();
+        this.executionMaxTime = statistics.getExecutionMaxTime();
+        this.executionMinTime = statistics.getExecutionMinTime();
+        this.totalTime = statistics.getExecutionTotalTime();
+        this.cacheHitCount = statistics.getCacheHitCount();
+        this.cacheMissCount = statistics.getCacheMissCount();
+    }
+}
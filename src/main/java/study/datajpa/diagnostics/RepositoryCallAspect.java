@@ -0,0 +1,32 @@
+package study.datajpa.diagnostics;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * 어떤 repository 메서드 다음에 반복 쿼리가 나왔는지 알 수 있게 호출을 표시한다.
+ */
+@Aspect
+@Component
+public class RepositoryCallAspect {
+
+    @Before("study.datajpa.diagnostics.RepositoryPointcuts.repositoryMethods()")
+    public void markRepositoryCall(JoinPoint joinPoint) {
+        if (StatementCounter.current() != null) {
+            StatementCounter.markRepositoryCall(repositoryName(joinPoint.getTarget()) + "." + joinPoint.getSignature().getName());
+        }
+    }
+
+    static String repositoryName(Object target) {
+        Class<?> type = target.getClass();
+        if (Proxy.isProxyClass(type) && type.getInterfaces().length > 0) {
+            return type.getInterfaces()[0].getSimpleName(); // spring data repository 프록시 -> MemberRepository
+        }
+        return ClassUtils.getUserClass(type).getSimpleName();
+    }
+}
@@ -0,0 +1,118 @@
+package study.datajpa.diagnostics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * repository 메서드 하나의 누적 통계 (lock 없이 LongAdder 로 기록)
+ * latency 히스토그램은 1ms, 2ms, 4ms ... 1024ms, 그 이상 구간으로 나눈다.
+ */
+public class RepositoryMethodStats {
+
+    private static final int BUCKETS = 12; // <=1ms ... <=1024ms, +Inf
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    RepositoryMethodStats(String name) {
+        this.name = name;
+    }
+
+    void record(long elapsedNanos, long rowCount, long statementCount, boolean error) {
+        calls.increment();
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulate(elapsedNanos);
+        rows.add(rowCount);
+        statements.add(statementCount);
+        histogram.incrementAndGet(bucket(elapsedNanos));
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    private static int bucket(long elapsedNanos) {
+        long millis = (elapsedNanos + 999_999) / 1_000_000; // 올림 - 1.5ms 는 le_2ms 구간
+        if (millis <= 1) {
+            return 0;
+        }
+        int bucket = 64 - Long.numberOfLeadingZeros(millis - 1); // ceil(log2(millis))
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private static String bucketLabel(int bucket) {
+        return bucket == BUCKETS - 1 ? "+Inf" : "le_" + (1L << bucket) + "ms";
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public double getAvgMillis() {
+        long count = calls.sum();
+        return count == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    public Map<String, Long> getHistogram() {
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.put(bucketLabel(i), histogram.get(i));
+        }
+        return buckets;
+    }
+
+    /**
+     * 히스토그램 구간 기준 백분위 (구간 상한값, ms)
+     */
+    public long percentileUpperBoundMillis(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += histogram.get(i);
+            if (seen >= rank && rank > 0) {
+                return 1L << i;
+            }
+        }
+        return total == 0 ? 0 : Long.MAX_VALUE;
+    }
+
+    public long getP50Millis() {
+        return percentileUpperBoundMillis(0.5);
+    }
+
+    public long getP99Millis() {
+        return percentileUpperBoundMillis(0.99);
+    }
+}
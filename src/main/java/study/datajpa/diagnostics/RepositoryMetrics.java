@@ -0,0 +1,42 @@
+package study.datajpa.diagnostics;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * repository 메서드별 호출 수, latency, 조회 row 수, 실행 SQL 수
+ */
+@Component
+public class RepositoryMetrics {
+
+    // repository 타입 -> 메서드 -> 통계 (호출마다 문자열 키를 만들지 않는다)
+    private final Map<Class<?>, Map<Method, RepositoryMethodStats>> stats = new ConcurrentHashMap<>();
+
+    RepositoryMethodStats statsFor(Object repository, Method method) {
+        Map<Method, RepositoryMethodStats> methods = stats.get(repository.getClass()); // 대부분 get 에서 끝난다.
+        if (methods == null) {
+            methods = stats.computeIfAbsent(repository.getClass(), type -> new ConcurrentHashMap<>());
+        }
+        RepositoryMethodStats methodStats = methods.get(method);
+        if (methodStats == null) {
+            methodStats = methods.computeIfAbsent(method, m -> new RepositoryMethodStats(
+                    RepositoryCallAspect.repositoryName(repository) + "." + m.getName()));
+        }
+        return methodStats;
+    }
+
+    public Map<String, RepositoryMethodStats> snapshot() {
+        Map<String, RepositoryMethodStats> snapshot = new TreeMap<>();
+        stats.values().forEach(methods -> methods.values()
+                .forEach(methodStats -> snapshot.put(methodStats.getName(), methodStats)));
+        return snapshot;
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+}
@@ -0,0 +1,66 @@
+package study.datajpa.diagnostics;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.datajpa.repository.KeysetWindow;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * 모든 repository 호출의 시간, 결과 row 수, 실행된 SQL 수를 RepositoryMetrics 에 기록한다.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "datajpa.metrics.repository.enabled", havingValue = "true", matchIfMissing = true)
+public class RepositoryMetricsAspect {
+
+    private final RepositoryMetrics metrics;
+
+    @Around("study.datajpa.diagnostics.RepositoryPointcuts.repositoryMethods()")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        long statementsBefore = StatementCounter.threadStatementCount();
+        long start = System.nanoTime();
+        Object result = null;
+        boolean error = true;
+        try {
+            result = joinPoint.proceed();
+            error = false;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            RepositoryMethodStats stats = metrics.statsFor(joinPoint.getTarget(), ((MethodSignature) joinPoint.getSignature()).getMethod());
+            stats.record(elapsed, rowCount(result), StatementCounter.threadStatementCount() - statementsBefore, error);
+        }
+    }
+
+    // Stream 은 소비하기 전이라 셀 수 없다.
+    private long rowCount(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof KeysetWindow) {
+            return ((KeysetWindow<?>) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Number || result instanceof Boolean || result instanceof java.util.stream.BaseStream) {
+            return 0;
+        }
+        return 1;
+    }
+}
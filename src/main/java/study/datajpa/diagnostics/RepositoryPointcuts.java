@@ -0,0 +1,14 @@
+package study.datajpa.diagnostics;
+
+import org.aspectj.lang.annotation.Pointcut;
+
+/**
+ * spring data repository 인터페이스 + @Repository 로 직접 만든 repository
+ */
+public class RepositoryPointcuts {
+
+    @Pointcut("execution(* org.springframework.data.repository.Repository+.*(..))" +
+            " || @within(org.springframework.stereotype.Repository)")
+    public void repositoryMethods() {
+    }
+}
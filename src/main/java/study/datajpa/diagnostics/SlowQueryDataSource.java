@@ -0,0 +1,91 @@
+package study.datajpa.diagnostics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Statement 의 execute* 실행 시간을 재서 SlowQueryLog 에 넘긴다.
+ * SlowQueryLog 가 꺼져 있으면 커넥션을 감싸지 않고 그대로 돌려준다. (proxy 비용 없음, 켜면 이후에 얻는 커넥션부터 시간을 잰다)
+ */
+public class SlowQueryDataSource extends DelegatingDataSource {
+
+    private final SlowQueryLog slowQueryLog;
+
+    public SlowQueryDataSource(DataSource targetDataSource, SlowQueryLog slowQueryLog) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = obtainTargetDataSource().getConnection();
+        return slowQueryLog.isEnabled() ? proxy(Connection.class, connection, this::invokeConnection) : connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = obtainTargetDataSource().getConnection(username, password);
+        return slowQueryLog.isEnabled() ? proxy(Connection.class, connection, this::invokeConnection) : connection;
+    }
+
+    private Object invokeConnection(Object target, Method method, Object[] args) throws Throwable {
+        Object result = invoke(target, method, args);
+        if (result instanceof CallableStatement) {
+            return proxy(CallableStatement.class, result, timed((String) args[0]));
+        }
+        if (result instanceof PreparedStatement) {
+            return proxy(PreparedStatement.class, result, timed((String) args[0]));
+        }
+        if (result instanceof Statement) {
+            return proxy(Statement.class, result, timed(null));
+        }
+        return result;
+    }
+
+    // preparedSql 이 null 이면 (Statement) execute 인자의 SQL 을 사용한다.
+    private Handler timed(String preparedSql) {
+        return (target, method, args) -> {
+            if (!slowQueryLog.isEnabled() || !method.getName().startsWith("execute")) { // 커넥션을 얻은 뒤에 꺼진 경우
+                return invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(target, method, args);
+            } finally {
+                String sql = preparedSql != null ? preparedSql
+                        : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                        : "batch";
+                slowQueryLog.record(sql, System.nanoTime() - start);
+            }
+        };
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+        return (T) Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(), new Class<?>[]{type}, invocationHandler);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object invoke(Object target, Method method, Object[] args) throws Throwable;
+    }
+}
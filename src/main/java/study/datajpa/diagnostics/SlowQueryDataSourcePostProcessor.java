@@ -0,0 +1,30 @@
+package study.datajpa.diagnostics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * 애플리케이션이 사용하는 "dataSource" 빈을 SlowQueryDataSource 로 감싼다.
+ * (replica 라우팅을 쓰면 primary/replica 풀이 아니라 라우팅 DataSource 를 한번만 감싼다)
+ * 커넥션을 proxy 로 감쌀지는 커넥션을 얻을 때마다 SlowQueryLog.isEnabled() 로 정한다.
+ */
+@Component
+public class SlowQueryDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<SlowQueryLog> slowQueryLog;
+
+    public SlowQueryDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && "dataSource".equals(beanName) && !(bean instanceof SlowQueryDataSource)) {
+            return new SlowQueryDataSource((DataSource) bean, slowQueryLog.getObject());
+        }
+        return bean;
+    }
+}
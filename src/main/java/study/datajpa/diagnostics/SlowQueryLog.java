@@ -0,0 +1,97 @@
+package study.datajpa.diagnostics;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * threshold 보다 오래 걸린 SQL 을 경고 로그로 남기고 최근 것들을 보관한다. (/diagnostics/slow-queries)
+ * 바인딩 파라미터는 기록하지 않고, SQL 에 직접 들어간 문자열/숫자 리터럴도 ? 로 가린다.
+ * enabled / thresholdMillis 는 재시작 없이 바꿀 수 있다. 꺼져 있으면 SlowQueryDataSource 가 커넥션을 감싸지 않는다.
+ */
+@Slf4j
+@Component
+public class SlowQueryLog {
+
+    private static final int MAX_RECENT = 100;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+
+    private volatile boolean enabled;
+    private volatile long thresholdMillis;
+
+    private final Deque<SlowQuery> recent = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger recentSize = new AtomicInteger();
+
+    public SlowQueryLog(@Value("${datajpa.slow-query.enabled:false}") boolean enabled,
+                        @Value("${datajpa.slow-query.threshold-millis:200}") long thresholdMillis) {
+        this.enabled = enabled;
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    public void configure(boolean enabled, long thresholdMillis) {
+        this.enabled = enabled;
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    void record(String sql, long elapsedNanos) {
+        long elapsedMillis = elapsedNanos / 1_000_000;
+        if (elapsedMillis < thresholdMillis) {
+            return;
+        }
+        SlowQuery slowQuery = new SlowQuery(redact(sql), elapsedMillis, Instant.now());
+        log.warn("slow query ({} ms) : {}", elapsedMillis, slowQuery.getSql());
+
+        recent.addFirst(slowQuery);
+        if (recentSize.incrementAndGet() > MAX_RECENT && recent.pollLast() != null) {
+            recentSize.decrementAndGet();
+        }
+    }
+
+    public List<SlowQuery> getRecent() {
+        return new ArrayList<>(recent);
+    }
+
+    public void clear() {
+        recent.clear();
+        recentSize.set(0);
+    }
+
+    static String redact(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        String redacted = STRING_LITERAL.matcher(sql).replaceAll("?");
+        return NUMBER_LITERAL.matcher(redacted).replaceAll("?");
+    }
+
+    @Getter
+    public static class SlowQuery {
+        private final String sql;
+        private final long elapsedMillis;
+        private final Instant executedAt;
+
+        SlowQuery(String sql, long elapsedMillis, Instant executedAt) {
+            this.sql = sql;
+            this.elapsedMillis = elapsedMillis;
+            this.executedAt = executedAt;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package study.datajpa.diagnostics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 스레드(요청, 트랜잭션, 테스트) 단위로 실행된 SQL 을 센다.
+ * 같은 select 가 threshold 번 이상 반복되면 N+1 로 본다.
+ *
+ * try (StatementCounter.Scope scope = StatementCounter.start()) {
+ *     ...
+ *     scope.assertNoNPlusOne(3);
+ * }
+ */
+public final class StatementCounter {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<long[]> THREAD_TOTAL = ThreadLocal.withInitial(() -> new long[1]);
+
+    // in (?, ?, ?) 처럼 파라미터 개수만 다른 쿼리는 같은 쿼리로 본다.
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private StatementCounter() {
+    }
+
+    public static Scope start() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    public static Scope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 이 스레드에서 실행되는 SQL 을 다른 스레드에서 시작한 scope 로 센다. 닫으면 이전 상태로 돌아간다.
+     */
+    public static Attachment attach(Scope scope) {
+        Scope previous = CURRENT.get();
+        CURRENT.set(scope);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * 다른 스레드(@Async, count 풀)에서 실행될 작업이 제출한 스레드의 scope 로 SQL 을 세도록 감싼다. (TaskDecorator)
+     */
+    public static Runnable propagate(Runnable task) {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            try (Attachment ignored = attach(scope)) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * 이 스레드에서 지금까지 실행된 SQL 수 (scope 와 상관없이 증가, 구간 차이로 사용)
+     */
+    public static long threadStatementCount() {
+        return THREAD_TOTAL.get()[0];
+    }
+
+    static void record(String sql) {
+        THREAD_TOTAL.get()[0]++;
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        String normalized = normalize(sql);
+        boolean select = normalized.regionMatches(true, 0, "select", 0, 6);
+        for (Scope s = scope; s != null; s = s.parent) {
+            s.record(normalized, select);
+        }
+    }
+
+    static void markRepositoryCall(String repositoryMethod) {
+        for (Scope s = CURRENT.get(); s != null; s = s.parent) {
+            s.lastRepositoryMethod = repositoryMethod;
+        }
+    }
+
+    static String normalize(String sql) {
+        String collapsed = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(collapsed).replaceAll("(?)");
+    }
+
+    @FunctionalInterface
+    public interface Attachment extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * 여러 스레드에서 같은 scope 에 기록할 수 있으므로 기록과 조회는 synchronized
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private final Map<String, Integer> selects = new HashMap<>();
+        private final Map<String, String> triggeredBy = new HashMap<>(); // select -> 처음 실행될 때 직전 repository 메서드
+        private int statementCount;
+        private String lastRepositoryMethod;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        private synchronized void record(String sql, boolean select) {
+            statementCount++;
+            if (select) {
+                selects.merge(sql, 1, Integer::sum);
+                triggeredBy.putIfAbsent(sql, lastRepositoryMethod);
+            }
+        }
+
+        public synchronized int getStatementCount() {
+            return statementCount;
+        }
+
+        /**
+         * threshold 번 이상 반복된 select (N+1 의심)
+         */
+        public synchronized Map<String, Integer> findRepeatedSelects(int threshold) {
+            Map<String, Integer> repeated = new LinkedHashMap<>();
+            selects.forEach((sql, count) -> {
+                if (count >= threshold) {
+                    repeated.put(sql, count);
+                }
+            });
+            return Collections.unmodifiableMap(repeated);
+        }
+
+        public synchronized String describeRepeatedSelects(int threshold) {
+            StringBuilder sb = new StringBuilder();
+            findRepeatedSelects(threshold).forEach((sql, count) -> sb
+                    .append(count).append("x after ").append(triggeredBy.get(sql))
+                    .append(" : ").append(sql).append('\n'));
+            return sb.toString();
+        }
+
+        public void assertNoNPlusOne(int threshold) {
+            if (!findRepeatedSelects(threshold).isEmpty()) {
+                throw new NPlusOneDetectedException(describeRepeatedSelects(threshold));
+            }
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() == this) {
+                if (parent == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(parent);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package study.datajpa.diagnostics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청마다 실행된 SQL 을 세고 N+1 이 의심되면 로그를 남긴다.
+ * 비동기 요청(DeferredResult)은 repository 스레드에서 실행된 SQL 까지 (TaskDecorator) 모아서 async dispatch 때 검사한다.
+ * 요청이 끝나면 처음 실행된 select 의 실행 계획을 백그라운드에서 확인한다. (QueryPlanVerifier, 켜져 있을때만)
+ */
+@Slf4j
+@Component
+public class StatementCountingFilter extends OncePerRequestFilter {
+
+    private static final String SCOPE_ATTRIBUTE = StatementCountingFilter.class.getName() + ".scope";
+
+    private final int threshold;
+    private final QueryPlanVerifier queryPlanVerifier;
+
+    public StatementCountingFilter(@Value("${datajpa.n-plus-one.threshold:10}") int threshold,
+                                   QueryPlanVerifier queryPlanVerifier) {
+        this.threshold = threshold;
+        this.queryPlanVerifier = queryPlanVerifier;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementCounter.Scope scope = (StatementCounter.Scope) request.getAttribute(SCOPE_ATTRIBUTE);
+        if (scope == null) {
+            scope = StatementCounter.start();
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                scope.close();
+            }
+        } else { // async dispatch - 처음 요청에서 시작한 scope 를 이어서 사용
+            try (StatementCounter.Attachment ignored = StatementCounter.attach(scope)) {
+                filterChain.doFilter(request, response);
+            }
+        }
+        if (request.isAsyncStarted()) {
+            request.setAttribute(SCOPE_ATTRIBUTE, scope); // 비동기 작업이 끝나고 dispatch 될때 검사한다.
+            return;
+        }
+
+        if (!scope.findRepeatedSelects(threshold).isEmpty()) {
+            log.warn("N+1 select suspected on {} {} ({} statements)\n{}",
+                    request.getMethod(), request.getRequestURI(), scope.getStatementCount(),
+                    scope.describeRepeatedSelects(threshold));
+        }
+        // 이번 요청에서 처음 실행된 select 의 실행 계획 확인 (full scan 이면 경고 로그). 응답은 이미 나갔으므로 예외를 던지지 않는다.
+        queryPlanVerifier.verifyPendingInBackground();
+    }
+}
@@ -0,0 +1,32 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 커밋 순서 번호 (MemberChangeSequence)
+ * 커밋 직전에 value 를 +1 하면서 row lock 을 잡기 때문에 번호 순서와 커밋 순서가 같다.
+ */
+@Entity
+@Table(name = "change_counter")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class ChangeCounter {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+    private long value;
+
+    public ChangeCounter(String name) {
+        this.name = name;
+    }
+}
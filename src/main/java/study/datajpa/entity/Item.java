@@ -26,6 +26,14 @@ public class Item implements Persistable<String> {
         this.id = id;
     }
 
+    /**
+     * 영속성 컨텍스트를 거치지 않고 insert 한 뒤 (ItemRepository.upsertAll) 새 엔티티가 아니라고 표시한다.
+     * 표시하지 않으면 save() 가 persist 를 호출해서 중복 키로 실패한다.
+     */
+    public void markInserted(LocalDateTime createdDate) {
+        this.createdDate = createdDate;
+    }
+
     @Override
     public String getId() {
         return id;
@@ -2,6 +2,7 @@ package study.datajpa.entity;
 
 
 import lombok.Getter;
+import study.datajpa.audit.AuditClock;
 
 import javax.persistence.Column;
 import javax.persistence.MappedSuperclass;
@@ -19,13 +20,13 @@ public class JpaBaseEntity {
 
     @PrePersist
     public void prePersist() {
-        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime now = AuditClock.now();
         createdData = now;
         updatedData = now;
     }
 
     @PreUpdate
     public void preUpdate() {
-        updatedData = LocalDateTime.now();
+        updatedData = AuditClock.now();
     }
 }
@@ -1,10 +1,14 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // 2차 캐시 (datajpa.cache.enabled=true 일때만 동작)
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
@@ -13,19 +17,39 @@ import javax.persistence.*;
         query = "select m from Member m where m.username = :username"
 )
 @NamedEntityGraph(name = "Member.all", attributeNodes = @NamedAttributeNode("team"))
+@Table(indexes = {
+        @Index(name = "idx_member_username_age", columnList = "username, age"),  // findByUsername, findByUsernameAndAgeGreaterThan, findByNames
+        @Index(name = "idx_member_age", columnList = "age"),                     // findByAge, findPageByAge, bulkAgePlus
+        @Index(name = "idx_member_username_id", columnList = "username, member_id"), // keyset USERNAME_ID 정렬
+        @Index(name = "idx_member_change_seq_id", columnList = "change_seq, member_id"), // changesSince
+        @Index(name = "idx_member_change_tx", columnList = "change_tx")                  // 커밋 직전 change_seq 부여
+})
 public class Member extends BaseEntity {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50) // pooled optimizer : 50건마다 시퀀스 1번 호출
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
 
+    @Version // 수정시 version 을 비교해서 동시 수정을 감지한다. (낙관적 락)
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
 
+    //증분 동기화 (changesSince) - 커밋 직전에 커밋 순서대로 번호를 매긴다. (MemberChangeSequence)
+    @Column(name = "change_seq")
+    @Setter(AccessLevel.NONE)
+    private Long changeSeq;
+    @Column(name = "change_tx")
+    @Setter(AccessLevel.NONE)
+    private Long changeTx;
+
     // 엔티티는 기본 생성자가 있어야한다.
     // protected ?? 아무데서나 호출되지 않게 하려고
     // Q. private 이 아니라 protected 인 이유??
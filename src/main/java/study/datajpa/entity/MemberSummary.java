@@ -0,0 +1,40 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Synchronize;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * 회원 목록 조회용 비정규화 테이블 (member + team.name)
+ * 목록 조회가 member/team join 없이 테이블 하나만 읽도록 한다.
+ *
+ * 직접 저장하지 않는다. Member/Team 이 바뀌면 MemberSummaryListener 가, bulk update 는 각 update 메서드가 같이 갱신한다.
+ * member/team 이 바뀌면 이 엔티티 쿼리도 auto flush / 쿼리 캐시 무효화 대상이 되도록 @Synchronize 로 묶는다.
+ */
+@Entity
+@Immutable
+@Synchronize({"member", "team"})
+@Table(name = "member_summary", indexes = @Index(name = "idx_member_summary_team_id", columnList = "team_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberSummary {
+
+    @Id
+    @Column(name = "member_id")
+    private Long id;
+    private String username;
+    private int age;
+    @Column(name = "team_id")
+    private Long teamId;
+    private String teamName;
+}
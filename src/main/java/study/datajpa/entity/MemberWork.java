@@ -0,0 +1,84 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.LocalDateTime;
+
+/**
+ * batch worker 작업 큐의 항목 (MemberWorkQueue) - 큐에 넣은 회원만 row 가 있다.
+ * 상태/lease 를 Member 와 다른 테이블에 두어서 claim/complete 가 회원의 version, outbox 이벤트, 변경 번호(change_seq),
+ * 2차 캐시에 영향을 주지 않는다.
+ */
+@Entity
+@Table(name = "member_work",
+        indexes = @Index(name = "idx_member_work_claim", columnList = "status, lease_expires_at, member_id")) // findClaimable
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(exclude = "persisted")
+public class MemberWork implements Persistable<Long> {
+
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private WorkStatus status;
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    // id 를 직접 넣으므로 save() 가 select 후 merge 하지 않게 새 엔티티인지 직접 알려준다.
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private boolean persisted;
+
+    public MemberWork(Long memberId) {
+        this.memberId = memberId;
+        this.status = WorkStatus.READY;
+    }
+
+    public void claim(String workerId, LocalDateTime expiresAt) {
+        this.status = WorkStatus.CLAIMED;
+        this.leaseOwner = workerId;
+        this.leaseExpiresAt = expiresAt;
+    }
+
+    //complete(DONE) 또는 release(READY)
+    public void finish(WorkStatus status) {
+        this.status = status;
+        this.leaseOwner = null;
+        this.leaseExpiresAt = null;
+    }
+
+    @Override
+    public Long getId() {
+        return memberId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.persisted = true;
+    }
+}
@@ -0,0 +1,54 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Member / Team / Item 변경 이벤트 (transactional outbox)
+ * 변경과 같은 트랜잭션에서 insert 되고 OutboxRelay 가 id 순서로 발행한 뒤 삭제한다.
+ *
+ * insert 는 OutboxEventListener / OutboxEvents 가 SQL 로 직접 한다. (bulk update 는 insert-select)
+ * 그래서 id 는 DB 가 만드는 IDENTITY 를 사용한다.
+ */
+@Entity
+@Immutable
+@Table(name = "outbox_event")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "outbox_event_id")
+    private Long id;
+
+    @Column(nullable = false, length = 50)
+    private String aggregateType;
+
+    @Column(nullable = false)
+    private String aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OutboxEventType eventType;
+
+    @Column(nullable = false, length = 4000)
+    private String payload; // json
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+}
@@ -1,23 +1,39 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OptimisticLock;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // 자주 읽고 거의 바뀌지 않는다.
+@BatchSize(size = 100) // member.getTeam() 프록시를 초기화할때 team 을 in 절로 100개씩 한번에 조회
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "name"})
 public class Team extends JpaBaseEntity {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq_generator")
+    @SequenceGenerator(name = "team_seq_generator", sequenceName = "team_seq", allocationSize = 50)
     @Column(name = "team_id")
     private Long id;
     private String name;
 
+    @Version // 수정시 version 을 비교해서 동시 수정을 감지한다. (낙관적 락)
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
+    // changeTeam 이 이전 팀의 members 를 정리하지 않아서 컬렉션은 캐시하지 않는다.
+    // 연관관계 주인이 아니므로 (DB 변경 없음) 회원 추가로 team version 을 올리지 않는다. 동시에 회원을 추가해도 충돌하지 않는다.
+    @BatchSize(size = 100) // 여러 팀의 members 를 in 절로 한번에 초기화
+    @OptimisticLock(excluded = true)
     @OneToMany(mappedBy = "team")
     private List<Member> members = new ArrayList<>();
 
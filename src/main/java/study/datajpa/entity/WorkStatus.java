@@ -0,0 +1,10 @@
+package study.datajpa.entity;
+
+/**
+ * batch worker 처리 상태 (MemberWorkQueue)
+ */
+public enum WorkStatus {
+    READY,   // 처리 대기
+    CLAIMED, // worker 가 가져감 (leaseExpiresAt 까지 유효)
+    DONE     // 처리 완료
+}
@@ -0,0 +1,65 @@
+package study.datajpa.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import study.datajpa.entity.OutboxEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 이벤트를 한 줄에 하나씩 json 으로 파일 끝에 추가한다. (json lines)
+ * batch 마다 디스크에 기록(force)한 뒤 반환하므로 relay 가 커밋한 이벤트는 파일에 남아 있다.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileOutboxSink(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            StringBuilder lines = new StringBuilder();
+            for (OutboxEvent event : events) {
+                lines.append(objectMapper.writeValueAsString(toLine(event))).append('\n');
+            }
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write outbox events to " + file, e);
+        }
+    }
+
+    private Map<String, Object> toLine(OutboxEvent event) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("id", event.getId());
+        line.put("aggregateType", event.getAggregateType());
+        line.put("aggregateId", event.getAggregateId());
+        line.put("eventType", event.getEventType());
+        line.put("occurredAt", event.getOccurredAt().toString());
+        line.put("payload", objectMapper.readTree(event.getPayload()));
+        return line;
+    }
+}
@@ -0,0 +1,27 @@
+package study.datajpa.outbox;
+
+import study.datajpa.entity.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 발행된 이벤트를 메모리에 쌓는다. (테스트용 - datajpa.outbox.sink=memory)
+ */
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final List<OutboxEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        this.events.addAll(events);
+    }
+
+    public synchronized List<OutboxEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,40 @@
+package study.datajpa.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import study.datajpa.config.HibernateIntegrators;
+
+import java.nio.file.Paths;
+
+@Configuration
+public class OutboxConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer outboxCustomizer() {
+        return HibernateIntegrators.append(new OutboxIntegrator());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datajpa.outbox.sink", havingValue = "file", matchIfMissing = true)
+    public OutboxSink fileOutboxSink(@Value("${datajpa.outbox.file:build/outbox/events.jsonl}") String file,
+                                     ObjectMapper objectMapper) {
+        return new FileOutboxSink(Paths.get(file), objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "datajpa.outbox.sink", havingValue = "memory")
+    public OutboxSink inMemoryOutboxSink() {
+        return new InMemoryOutboxSink();
+    }
+
+    @Configuration
+    @EnableScheduling
+    @ConditionalOnProperty(name = "datajpa.outbox.relay.enabled", havingValue = "true")
+    static class RelaySchedulingConfig {
+    }
+}
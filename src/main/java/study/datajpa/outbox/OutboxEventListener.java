@@ -0,0 +1,118 @@
+package study.datajpa.outbox;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import study.datajpa.audit.AuditClock;
+import study.datajpa.config.SessionJdbcBatch;
+import study.datajpa.entity.Item;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEventType;
+import study.datajpa.entity.Team;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Member / Team / Item 의 insert, update, delete 를 같은 트랜잭션에서 outbox_event 에 추가한다.
+ * payload 는 변경 후 상태 (삭제는 id 만)
+ * 이벤트 row 는 모아 두었다가 flush 가 끝날때 JDBC batch 로 insert 한다. (SessionJdbcBatch)
+ */
+public class OutboxEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        FlushEventListener, AutoFlushEventListener {
+
+    private final SessionJdbcBatch batch = new SessionJdbcBatch();
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        append(event.getSession(), event.getEntity(), OutboxEventType.CREATED);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        append(event.getSession(), event.getEntity(), OutboxEventType.UPDATED);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        append(event.getSession(), event.getEntity(), OutboxEventType.DELETED);
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) {
+        batch.execute(event.getSession());
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) {
+        batch.execute(event.getSession());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void append(SharedSessionContractImplementor session, Object entity, OutboxEventType eventType) {
+        Map<String, Object> payload = payload(entity);
+        if (payload == null) {
+            return; // outbox 대상이 아닌 엔티티
+        }
+        if (eventType == OutboxEventType.DELETED) {
+            payload = Collections.singletonMap("id", payload.get("id"));
+        }
+        String aggregateType = entity.getClass().getSimpleName();
+        String aggregateId = String.valueOf(payload.get("id"));
+        String json = OutboxEvents.payload(payload);
+        Timestamp occurredAt = Timestamp.valueOf(AuditClock.now());
+        batch.add(session, OutboxEvents.INSERT, ps -> {
+            ps.setString(1, aggregateType);
+            ps.setString(2, aggregateId);
+            ps.setString(3, eventType.name());
+            ps.setString(4, json);
+            ps.setTimestamp(5, occurredAt);
+        });
+    }
+
+    private Map<String, Object> payload(Object entity) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        if (entity instanceof Member) {
+            Member member = (Member) entity;
+            payload.put("id", member.getId());
+            payload.put("username", member.getUsername());
+            payload.put("age", member.getAge());
+            payload.put("teamId", member.getTeam() == null ? null : teamId(member.getTeam()));
+            payload.put("version", member.getVersion());
+        } else if (entity instanceof Team) {
+            Team team = (Team) entity;
+            payload.put("id", team.getId());
+            payload.put("name", team.getName());
+            payload.put("version", team.getVersion());
+        } else if (entity instanceof Item) {
+            payload.put("id", ((Item) entity).getId());
+        } else {
+            return null;
+        }
+        return payload;
+    }
+
+    // 지연 로딩 프록시를 초기화하지 않고 id 만 꺼낸다.
+    private Long teamId(Team team) {
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team.getId();
+    }
+}
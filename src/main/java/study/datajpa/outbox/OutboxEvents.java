@@ -0,0 +1,99 @@
+package study.datajpa.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import study.datajpa.audit.AuditClock;
+import study.datajpa.entity.OutboxEventType;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * outbox_event 에 이벤트를 추가하는 SQL
+ * 엔티티 변경은 OutboxEventListener 가, 리스너를 거치지 않는 bulk update/delete 는 각 메서드가 appendMembers / append 로 추가한다.
+ */
+public final class OutboxEvents {
+
+    public static final String INSERT = "insert into outbox_event (aggregate_type, aggregate_id, event_type, payload, occurred_at)" +
+            " values (?, ?, ?, ?, ?)";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BATCH_SIZE = 100;
+
+    private OutboxEvents() {
+    }
+
+    /**
+     * where 조건에 맞는 회원마다 이벤트를 하나씩 insert-select 로 추가한다.
+     * payload 는 bulk 로 바뀔 수 있는 컬럼만 담는다. (id, age, version)
+     * UPDATED 는 update 이후에, DELETED 는 delete 이전에 호출한다.
+     *
+     * @param where member m 에 대한 SQL 조건
+     * @return 추가된 이벤트 수
+     */
+    public static int appendMembers(EntityManager em, OutboxEventType eventType, String where, Map<String, ?> params) {
+        String payload = eventType == OutboxEventType.DELETED
+                ? "concat('{\"id\":', m.member_id, '}')"
+                : "concat('{\"id\":', m.member_id, ',\"age\":', m.age," +
+                " ',\"version\":', coalesce(m.version, 0), '}')";
+        Query query = em.createNativeQuery("insert into outbox_event (aggregate_type, aggregate_id, event_type, payload, occurred_at)" +
+                " select 'Member', concat('', m.member_id), :eventType, " + payload + ", :occurredAt" +
+                " from member m where " + where)
+                .setParameter("eventType", eventType.name())
+                .setParameter("occurredAt", Timestamp.valueOf(AuditClock.now()));
+        params.forEach(query::setParameter);
+        return query.unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("outbox_event")
+                .executeUpdate();
+    }
+
+    /**
+     * id 마다 payload 가 id 뿐인 이벤트를 세션 커넥션으로 batch insert 한다. (bulk delete 전, jdbc 로 직접 insert 한 뒤)
+     */
+    public static void append(EntityManager em, String aggregateType, OutboxEventType eventType, Collection<?> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Timestamp occurredAt = Timestamp.valueOf(AuditClock.now());
+        em.unwrap(Session.class).doWork(connection -> append(connection, aggregateType, eventType, ids, occurredAt));
+    }
+
+    public static void append(Connection connection, String aggregateType, OutboxEventType eventType,
+                              Collection<?> ids, Timestamp occurredAt) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            int pending = 0;
+            for (Object id : ids) {
+                ps.setString(1, aggregateType);
+                ps.setString(2, String.valueOf(id));
+                ps.setString(3, eventType.name());
+                ps.setString(4, payload(Collections.singletonMap("id", id)));
+                ps.setTimestamp(5, occurredAt);
+                ps.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    ps.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                ps.executeBatch();
+            }
+        }
+    }
+
+    public static String payload(Map<String, ?> values) {
+        try {
+            return MAPPER.writeValueAsString(values);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("could not write outbox payload", e);
+        }
+    }
+}
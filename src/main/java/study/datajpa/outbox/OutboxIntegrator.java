@@ -0,0 +1,30 @@
+package study.datajpa.outbox;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * SessionFactory 를 만들때 OutboxEventListener 를 등록한다. (hibernate.integrator_provider)
+ */
+public class OutboxIntegrator implements Integrator {
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        OutboxEventListener listener = new OutboxEventListener();
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+        // 기본 flush 리스너 다음에 실행되어 모아 둔 SQL 을 batch 로 실행한다.
+        registry.appendListeners(EventType.FLUSH, listener);
+        registry.appendListeners(EventType.AUTO_FLUSH, listener);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
@@ -0,0 +1,119 @@
+package study.datajpa.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.OutboxEvent;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * outbox_event 를 id 순서로 batchSize 만큼 읽어서 sink 로 보내고 삭제한다. (한 트랜잭션)
+ *
+ * 읽은 batch 에 락을 걸어서 relay 가 여러개 떠도 같은 이벤트를 동시에 보내지 않는다.
+ * 같은 회원/팀의 변경은 row lock 으로 순서대로 커밋되므로 aggregate 단위 순서는 id 순서와 같다.
+ * (서로 다른 aggregate 사이에는 id 가 커밋 순서와 다를 수 있다)
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final OutboxSink sink;
+    private final TransactionTemplate relayTransaction;
+    private final int batchSize;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public OutboxRelay(OutboxSink sink,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${datajpa.outbox.relay.batch-size:500}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        this.sink = sink;
+        this.relayTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * batch 하나를 발행한다.
+     * @return 발행한 이벤트 수 (0 이면 밀린 이벤트가 없다)
+     */
+    public int relay() {
+        Integer count = relayTransaction.execute(status -> relayBatch(em, sink, batchSize));
+        published.add(count);
+        return count;
+    }
+
+    /**
+     * 트랜잭션 안에서 batch 하나를 읽어서 발행하고 삭제한다. (shard DB 의 outbox 도 같은 방식으로 발행한다 - ShardOutboxRelay)
+     * @return 발행한 이벤트 수
+     */
+    public static int relayBatch(EntityManager em, OutboxSink sink, int batchSize) {
+        List<OutboxEvent> events = em.createQuery("select e from OutboxEvent e order by e.id", OutboxEvent.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(batchSize)
+                .getResultList();
+        if (events.isEmpty()) {
+            return 0;
+        }
+        sink.publish(events);
+
+        List<Long> ids = events.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+        em.createQuery("delete from OutboxEvent e where e.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return events.size();
+    }
+
+    /**
+     * 밀린 이벤트가 없을때까지 발행한다.
+     * @return 발행한 이벤트 수
+     */
+    public long relayAll() {
+        long total = 0;
+        int count;
+        do {
+            count = relay();
+            total += count;
+        } while (count == batchSize);
+        return total;
+    }
+
+    // datajpa.outbox.relay.enabled=true 일때만 스케줄링 (OutboxConfig)
+    @Scheduled(fixedDelayString = "${datajpa.outbox.relay.interval-millis:1000}")
+    public void relayScheduled() {
+        try {
+            relayAll();
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("outbox relay failed, retrying next interval", e);
+        }
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("published", published.sum());
+        statistics.put("failures", failures.sum());
+        statistics.put("pending", em.createQuery("select count(e) from OutboxEvent e", Long.class).getSingleResult());
+        return statistics;
+    }
+}
@@ -0,0 +1,14 @@
+package study.datajpa.outbox;
+
+import study.datajpa.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * OutboxRelay 가 이벤트를 보내는 곳
+ * 예외를 던지면 relay 트랜잭션이 롤백되어 같은 이벤트를 다음에 다시 보낸다. (at-least-once, 받는 쪽은 event id 로 중복 제거)
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxEvent> events);
+}
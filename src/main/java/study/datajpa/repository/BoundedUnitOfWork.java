@@ -0,0 +1,198 @@
+package study.datajpa.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.time.temporal.Temporal;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 긴 batch 트랜잭션에서 영속성 컨텍스트 크기를 제한한다.
+ * open() 이후에 관리하게 된 엔티티가 maxEntities 개 이상이거나 추정 메모리가 maxBytes 이상이면 flush 하고 그 엔티티만 detach 한다.
+ * flush 의 dirty checking 은 관리 중인 엔티티 전체의 스냅샷을 비교하므로 크기를 제한하면 flush 시간도 일정하게 유지된다.
+ *
+ * open() 시점에 이미 관리 중이던 엔티티(호출한 쪽 트랜잭션에서 읽거나 저장한 엔티티)는 clear 하지 않고 그대로 둔다.
+ * 그 이후에 읽거나 저장한 엔티티는 준영속 상태가 된다. (지연 로딩, 변경 감지 불가)
+ * retained 엔티티의 초기화된 역방향 컬렉션(Team.members)에서도 빠진다. (InverseCollections)
+ * 다음 작업에서 필요한 엔티티는 다시 조회하거나 getReference 로 참조한다.
+ *
+ * Member / Team 을 bytecode enhancement (enableDirtyTracking) 로 빌드하면 flush 가 스냅샷 비교 대신 엔티티가 기록한 변경 필드만 본다. (README)
+ */
+@Slf4j
+@Component
+public class BoundedUnitOfWork {
+
+    // 추정 메모리는 엔티티 전체를 훑어야 해서 checkpoint 마다 계산하지 않는다.
+    private static final int BYTE_CHECK_INTERVAL = 64;
+    private static final long ENTITY_OVERHEAD_BYTES = 160; // 엔티티 객체 + EntityEntry + EntityKey
+
+    private final EntityManager em;
+    private final int maxEntities;
+    private final long maxBytes;
+
+    public BoundedUnitOfWork(EntityManager em,
+                             @Value("${datajpa.unit-of-work.max-entities:1000}") int maxEntities,
+                             @Value("${datajpa.unit-of-work.max-bytes:33554432}") long maxBytes) {
+        this.em = em;
+        this.maxEntities = maxEntities;
+        this.maxBytes = maxBytes;
+        if (!SelfDirtinessTracker.class.isAssignableFrom(Member.class) || !SelfDirtinessTracker.class.isAssignableFrom(Team.class)) {
+            log.info("Member/Team are not bytecode enhanced, flush compares entity snapshots (see README: bytecode enhancement)");
+        }
+    }
+
+    /**
+     * 새 트랜잭션(또는 진행 중인 트랜잭션)에서 item 마다 work 를 실행하고 필요하면 flush + detach 한다.
+     */
+    @Transactional
+    public <T> UnitOfWorkStats forEach(Iterable<T> items, Consumer<? super T> work) {
+        Scope scope = open();
+        for (T item : items) {
+            work.accept(item);
+            scope.checkpoint();
+        }
+        return scope.finish();
+    }
+
+    /**
+     * 진행 중인 트랜잭션에서 직접 checkpoint 를 호출할때 사용한다.
+     */
+    public Scope open() {
+        return open(maxEntities, maxBytes);
+    }
+
+    public Scope open(int maxEntities, long maxBytes) {
+        if (maxEntities < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("maxEntities and maxBytes must be greater than 0");
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("BoundedUnitOfWork requires an active transaction");
+        }
+        return new Scope(em.unwrap(SessionImplementor.class), maxEntities, maxBytes);
+    }
+
+    public static final class Scope {
+
+        private final SessionImplementor session;
+        private final int maxEntities;
+        private final long maxBytes;
+        private final Set<Object> retained; // open() 전부터 관리 중이던 엔티티 - detach 하지 않고 크기 계산에서도 뺀다.
+
+        private long processed;
+        private int flushes;
+        private long flushNanos;
+        private int maxManagedEntities;
+        private long maxEstimatedBytes;
+        private int sinceByteCheck;
+
+        private Scope(SessionImplementor session, int maxEntities, long maxBytes) {
+            this.session = session;
+            this.maxEntities = maxEntities;
+            this.maxBytes = maxBytes;
+            this.retained = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+                retained.add(entry.getKey());
+            }
+        }
+
+        /**
+         * 작업 하나가 끝날때마다 호출한다.
+         * @return flush + detach 했으면 true
+         */
+        public boolean checkpoint() {
+            processed++;
+            int managed = managedSinceOpen();
+            maxManagedEntities = Math.max(maxManagedEntities, managed);
+
+            boolean full = managed >= maxEntities;
+            if (!full && maxBytes != Long.MAX_VALUE && ++sinceByteCheck >= BYTE_CHECK_INTERVAL) {
+                sinceByteCheck = 0;
+                long bytes = estimateBytes();
+                maxEstimatedBytes = Math.max(maxEstimatedBytes, bytes);
+                full = bytes >= maxBytes;
+            }
+            if (full) {
+                flushAndDetach();
+            }
+            return full;
+        }
+
+        /**
+         * 남은 변경을 flush 하고 open() 이후에 관리하게 된 엔티티를 detach 한다.
+         */
+        public UnitOfWorkStats finish() {
+            flushAndDetach();
+            return new UnitOfWorkStats(processed, flushes, TimeUnit.NANOSECONDS.toMillis(flushNanos),
+                    maxManagedEntities, maxEstimatedBytes);
+        }
+
+        // 삭제되어 영속성 컨텍스트에서 빠진 retained 엔티티도 있을 수 있어서 0 아래로 내려가지 않게 한다.
+        private int managedSinceOpen() {
+            return Math.max(0, session.getPersistenceContext().getNumberOfManagedEntities() - retained.size());
+        }
+
+        private void flushAndDetach() {
+            int managed = managedSinceOpen();
+            long start = System.nanoTime();
+            session.flush();
+            Set<Object> evicted = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+                if (!retained.contains(entry.getKey())) {
+                    session.evict(entry.getKey());
+                    evicted.add(entry.getKey());
+                }
+            }
+            InverseCollections.release(session, evicted); // retained 팀의 members 가 detach 한 회원을 들고 있지 않도록
+            long elapsed = System.nanoTime() - start;
+            flushNanos += elapsed;
+            flushes++;
+            log.debug("unit of work flushed {} managed entities in {} ms (processed {})",
+                    managed, TimeUnit.NANOSECONDS.toMillis(elapsed), processed);
+        }
+
+        // 엔티티 필드 + 로딩 시점 스냅샷(loadedState) 이 같은 값을 가지므로 두배로 센다.
+        private long estimateBytes() {
+            long bytes = 0;
+            for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+                if (retained.contains(entry.getKey())) {
+                    continue;
+                }
+                bytes += ENTITY_OVERHEAD_BYTES;
+                Object[] loadedState = entry.getValue().getLoadedState();
+                if (loadedState != null) {
+                    for (Object value : loadedState) {
+                        bytes += 2 * estimateBytes(value);
+                    }
+                }
+            }
+            return bytes;
+        }
+
+        private static long estimateBytes(Object value) {
+            if (value == null) {
+                return 0;
+            }
+            if (value instanceof String) {
+                return 40 + 2L * ((String) value).length();
+            }
+            if (value instanceof Temporal) {
+                return 48;
+            }
+            return 16; // 숫자, enum, 연관 엔티티 참조
+        }
+    }
+}
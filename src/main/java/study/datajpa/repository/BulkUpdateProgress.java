@@ -0,0 +1,28 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * chunk 단위 bulk update 진행 상황 (chunk 하나가 커밋될 때마다 전달)
+ */
+@Getter
+@ToString
+public class BulkUpdateProgress {
+
+    private final int chunk;          // 1 부터 시작
+    private final long chunkStartId;  // 이번 chunk 의 member_id 구간 [chunkStartId, chunkEndId)
+    private final long chunkEndId;
+    private final long maxId;         // 마지막 member_id
+    private final int updatedInChunk;
+    private final long updatedTotal;
+
+    public BulkUpdateProgress(int chunk, long chunkStartId, long chunkEndId, long maxId, int updatedInChunk, long updatedTotal) {
+        this.chunk = chunk;
+        this.chunkStartId = chunkStartId;
+        this.chunkEndId = chunkEndId;
+        this.maxId = maxId;
+        this.updatedInChunk = updatedInChunk;
+        this.updatedTotal = updatedTotal;
+    }
+}
@@ -0,0 +1,33 @@
+package study.datajpa.repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * changesSince 결과
+ * 다음 호출에는 nextWatermark 를 넘긴다. (변경이 없으면 넘긴 watermark 그대로)
+ */
+public class ChangeSet<T> {
+
+    private final List<T> content;
+    private final ChangeWatermark nextWatermark;
+    private final boolean hasMore; // limit 때문에 못 읽은 변경이 남아 있다.
+
+    public ChangeSet(List<T> content, ChangeWatermark nextWatermark, boolean hasMore) {
+        this.content = Collections.unmodifiableList(content);
+        this.nextWatermark = nextWatermark;
+        this.hasMore = hasMore;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public ChangeWatermark getNextWatermark() {
+        return nextWatermark;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,69 @@
+package study.datajpa.repository;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 증분 동기화(changesSince) 의 위치 - 마지막으로 읽은 (changeSeq, id)
+ * 같은 트랜잭션에서 수정된 회원은 changeSeq 가 같으므로 id 로 순서를 정한다.
+ * 클라이언트에 넘길때는 encode() 한 문자열을 사용한다.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class ChangeWatermark {
+
+    private static final String DELIMITER = "@";
+    private static final ChangeWatermark INITIAL = new ChangeWatermark(null, null);
+
+    private final Long changeSeq; // null 이면 처음부터
+    private final Long id;
+
+    private ChangeWatermark(Long changeSeq, Long id) {
+        this.changeSeq = changeSeq;
+        this.id = id;
+    }
+
+    public static ChangeWatermark initial() {
+        return INITIAL;
+    }
+
+    public static ChangeWatermark of(Long changeSeq, Long id) {
+        if (changeSeq == null || id == null) {
+            throw new IllegalArgumentException("changeSeq and id must not be null");
+        }
+        return new ChangeWatermark(changeSeq, id);
+    }
+
+    public static ChangeWatermark decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return INITIAL;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(DELIMITER, 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("missing delimiter");
+            }
+            return of(Long.valueOf(parts[1]), Long.valueOf(parts[0]));
+        } catch (RuntimeException e) { // base64, 숫자 파싱 실패 모두 포함
+            throw new IllegalArgumentException("invalid change watermark: " + token, e);
+        }
+    }
+
+    public String encode() {
+        if (isInitial()) {
+            return "";
+        }
+        String raw = id + DELIMITER + changeSeq;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isInitial() {
+        return changeSeq == null;
+    }
+}
@@ -0,0 +1,12 @@
+package study.datajpa.repository;
+
+/**
+ * Page 조회시 total count 를 구하는 전략
+ */
+public enum CountMode {
+    EXACT,      // 매 요청마다 count 쿼리 (기본 동작)
+    CACHED,     // 쿼리 + 파라미터 기준으로 정확한 count 를 TTL 동안 캐시
+    ESTIMATED,  // DB 통계의 테이블 row 추정치 (조건이 있는 쿼리면 상한값)
+    HAS_MORE,   // count 쿼리 없이 한 건 더 읽어서 다음 페이지 여부만 판단 (다음 페이지가 있으면 total 을 모른다 - HasMorePage)
+    PARALLEL    // 정확한 count 를 별도 커넥션(읽기 전용 트랜잭션)에서 content 쿼리와 동시에 실행
+}
@@ -0,0 +1,43 @@
+package study.datajpa.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * CountMode.HAS_MORE 결과 - count 쿼리 없이 size + 1 건을 읽어서 다음 페이지 여부만 안다.
+ * total 을 모르므로 getTotalElements(), getTotalPages() 는 UNKNOWN_TOTAL(-1) 이다.
+ * (다음 페이지가 없으면 total 을 알 수 있으므로 PageCountSupport 는 일반 PageImpl 을 반환한다)
+ */
+public class HasMorePage<T> extends SliceImpl<T> implements Page<T> {
+
+    public static final long UNKNOWN_TOTAL = -1;
+
+    public HasMorePage(List<T> content, Pageable pageable, boolean hasNext) {
+        super(content, pageable, hasNext);
+    }
+
+    @Override
+    public int getTotalPages() {
+        return (int) UNKNOWN_TOTAL;
+    }
+
+    @Override
+    public long getTotalElements() {
+        return UNKNOWN_TOTAL;
+    }
+
+    @Override
+    public <U> Page<U> map(Function<? super T, ? extends U> converter) {
+        return new HasMorePage<>(getConvertedContent(converter), getPageable(), hasNext());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Page %s of unknown total containing %s instances", getNumber() + 1,
+                getContent().isEmpty() ? "UNKNOWN" : getContent().get(0).getClass().getName());
+    }
+}
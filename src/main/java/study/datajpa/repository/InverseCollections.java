@@ -0,0 +1,52 @@
+package study.datajpa.repository;
+
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.CollectionEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * detach 한 엔티티를 영속성 컨텍스트에 남은 엔티티의 초기화된 역방향 컬렉션(mappedBy, 예: Team.members)에서 뺀다.
+ * 빼지 않으면 detach 해도 컬렉션이 참조를 들고 있어서 메모리가 줄지 않는다.
+ * 연관관계 주인이 아닌 컬렉션이라 DB 변경은 없다. (Team.members 는 @OptimisticLock(excluded = true) 라서 version 도 그대로)
+ * 연관관계 주인인 컬렉션은 빼면 연관관계가 삭제되므로 건드리지 않는다.
+ */
+final class InverseCollections {
+
+    private InverseCollections() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static void release(SessionImplementor session, Set<Object> detached) {
+        if (detached.isEmpty()) {
+            return;
+        }
+        PersistenceContext persistenceContext = session.getPersistenceContext();
+        List<Map.Entry<PersistentCollection, CollectionEntry>> entries = new ArrayList<>(persistenceContext.getCollectionEntries().entrySet());
+        for (Map.Entry<PersistentCollection, CollectionEntry> entry : entries) {
+            PersistentCollection collection = entry.getKey();
+            CollectionEntry collectionEntry = entry.getValue();
+            if (!collection.wasInitialized() || !(collection instanceof Collection)
+                    || collectionEntry.getLoadedPersister() == null || !collectionEntry.getLoadedPersister().isInverse()) {
+                continue;
+            }
+            Collection<Object> elements = (Collection<Object>) collection;
+            List<Object> kept = new ArrayList<>(elements.size());
+            for (Object element : elements) {
+                if (!detached.contains(element)) {
+                    kept.add(element);
+                }
+            }
+            if (kept.size() != elements.size()) { // 하나씩 remove 하면 List 는 O(n^2)
+                elements.clear();
+                elements.addAll(kept);
+            }
+        }
+    }
+}
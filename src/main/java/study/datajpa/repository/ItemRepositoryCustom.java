@@ -0,0 +1,16 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Item;
+
+import java.util.Collection;
+
+public interface ItemRepositoryCustom {
+
+    //외부에서 id 를 정해서 들어오는 Item 대량 저장 - 이미 있는 id 는 건너뛴다. (merge 의 row 별 select 없음)
+    int upsertAll(Collection<Item> items);
+
+    //JpaRepository 의 batch 삭제를 대신한다. (bulk delete 는 리스너를 거치지 않으므로 outbox 이벤트를 같이 추가)
+    void deleteInBatch(Iterable<Item> items);
+
+    void deleteAllInBatch();
+}
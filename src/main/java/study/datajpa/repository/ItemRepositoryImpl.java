@@ -0,0 +1,168 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.audit.AuditClock;
+import study.datajpa.entity.Item;
+import study.datajpa.entity.OutboxEventType;
+import study.datajpa.outbox.OutboxEvents;
+
+import javax.persistence.EntityManager;
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class ItemRepositoryImpl implements ItemRepositoryCustom {
+
+    private static final int BATCH_SIZE = 100;
+
+    // 표준 SQL : 없을때만 insert (H2 의 MERGE ... KEY 는 created_date 를 덮어쓰기 때문에 사용하지 않는다)
+    private static final String INSERT_IF_ABSENT = "insert into item (id, created_date)" +
+            " select cast(? as varchar(255)), cast(? as timestamp)" +
+            " where not exists (select 1 from item where id = ?)";
+    private static final String DUPLICATE_KEY_SQL_STATE = "23505";
+    private static final String POSTGRES_UPSERT = "insert into item (id, created_date) values (?, ?)" +
+            " on conflict (id) do nothing";
+    private static final String MYSQL_UPSERT = "insert into item (id, created_date) values (?, ?)" +
+            " on duplicate key update id = id";
+
+    private final EntityManager em;
+
+    /**
+     * jdbc batch 로 한번에 보낸다. 영속성 컨텍스트를 거치지 않으므로 넘긴 Item 은 영속 상태가 되지 않는다.
+     * 새로 insert 된 Item 마다 outbox 이벤트(CREATED)도 같이 추가하고, 넘긴 객체에 createdDate 를 채워서 isNew() 가 false 가 되게 한다.
+     * 이미 있어서 insert 하지 않은 Item 객체는 그대로 두므로 (DB 의 createdDate 를 모른다) 수정하려면 다시 조회한다.
+     * @return 새로 insert 된 row 수 (드라이버가 row 수를 알려주지 않으면 시도한 건수)
+     */
+    @Override
+    @Transactional
+    public int upsertAll(Collection<Item> items) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+        em.flush(); // 아직 flush 안 된 Item 과 순서가 꼬이지 않게
+        LocalDateTime now = AuditClock.now();
+        Timestamp createdDate = Timestamp.valueOf(now);
+
+        List<String> newIds = em.unwrap(Session.class).doReturningWork(connection -> {
+            String sql = upsertSql(connection.getMetaData().getDatabaseProductName());
+            boolean insertIfAbsent = INSERT_IF_ABSENT.equals(sql);
+
+            List<String> inserted = new ArrayList<>();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                List<String> pending = new ArrayList<>();
+                for (Item item : items) {
+                    ps.setString(1, item.getId());
+                    ps.setTimestamp(2, createdDate);
+                    if (insertIfAbsent) {
+                        ps.setString(3, item.getId());
+                    }
+                    ps.addBatch();
+                    pending.add(item.getId());
+                    if (pending.size() == BATCH_SIZE) {
+                        inserted.addAll(insertedIds(pending, executeBatch(ps, insertIfAbsent)));
+                        pending.clear();
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    inserted.addAll(insertedIds(pending, executeBatch(ps, insertIfAbsent)));
+                }
+            }
+            // 리스너를 거치지 않으므로 새로 insert 된 Item 의 outbox 이벤트를 같은 커넥션으로 추가한다.
+            OutboxEvents.append(connection, "Item", OutboxEventType.CREATED, inserted, createdDate);
+            return inserted;
+        });
+
+        Set<String> inserted = new HashSet<>(newIds);
+        for (Item item : items) {
+            if (inserted.contains(item.getId())) {
+                item.markInserted(now);
+            }
+        }
+        return newIds.size();
+    }
+
+    @Override
+    @Transactional
+    public void deleteInBatch(Iterable<Item> items) {
+        List<String> ids = new ArrayList<>();
+        items.forEach(item -> ids.add(item.getId()));
+        delete(ids);
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllInBatch() {
+        delete(em.createQuery("select i.id from Item i", String.class).getResultList());
+    }
+
+    // bulk delete 는 리스너를 거치지 않으므로 삭제 전에 outbox 이벤트를 추가한다.
+    private void delete(List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        OutboxEvents.append(em, "Item", OutboxEventType.DELETED, ids);
+        em.createQuery("delete from Item i where i.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * insert ... where not exists 는 원자적이지 않다. 동시에 같은 id 를 넣으면 둘 다 검사를 통과하고 늦은 쪽이 중복 키로 실패한다.
+     * 중복 키로 실패한 row 는 이미 있는 것이므로 insert 되지 않은 것으로 본다. (H2 는 실패한 row 가 있어도 나머지 batch 를 실행한다)
+     */
+    private int[] executeBatch(PreparedStatement ps, boolean insertIfAbsent) throws SQLException {
+        try {
+            return ps.executeBatch();
+        } catch (BatchUpdateException e) {
+            if (!insertIfAbsent || !onlyDuplicateKeys(e)) {
+                throw e;
+            }
+            return e.getUpdateCounts(); // 실패한 row 는 EXECUTE_FAILED
+        }
+    }
+
+    private boolean onlyDuplicateKeys(BatchUpdateException e) {
+        SQLException next = e.getNextException();
+        if (next == null) {
+            return false;
+        }
+        for (; next != null; next = next.getNextException()) {
+            if (!DUPLICATE_KEY_SQL_STATE.equals(next.getSQLState())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String upsertSql(String databaseProductName) {
+        if ("PostgreSQL".equals(databaseProductName)) {
+            return POSTGRES_UPSERT;
+        }
+        if ("MySQL".equals(databaseProductName) || "MariaDB".equals(databaseProductName)) {
+            return MYSQL_UPSERT;
+        }
+        return INSERT_IF_ABSENT;
+    }
+
+    private List<String> insertedIds(List<String> ids, int[] results) {
+        List<String> inserted = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            // 드라이버가 row 수를 알려주지 않으면 insert 된 것으로 본다. (mysql 의 on duplicate key update 는 변경시 2 를 준다)
+            if (results[i] == Statement.SUCCESS_NO_INFO || results[i] > 0) {
+                inserted.add(ids.get(i));
+            }
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,55 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Member;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset 페이징의 continuation token
+ * 정렬 기준과 마지막으로 읽은 키(member_id, username)를 담아 base64 로 감싼다. (클라이언트에는 불투명한 문자열)
+ */
+final class KeysetCursor {
+
+    private static final String DELIMITER = ":";
+
+    private final KeysetOrder order;
+    private final Long id;
+    private final String username;
+
+    private KeysetCursor(KeysetOrder order, Long id, String username) {
+        this.order = order;
+        this.id = id;
+        this.username = username;
+    }
+
+    static KeysetCursor of(KeysetOrder order, Member last) {
+        return new KeysetCursor(order, last.getId(), last.getUsername());
+    }
+
+    static KeysetCursor decode(KeysetOrder order, String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(DELIMITER, 3); // username 에 ':' 가 있을 수 있어서 마지막에 둔다.
+            if (parts.length != 3 || KeysetOrder.valueOf(parts[0]) != order) {
+                throw new IllegalArgumentException("cursor does not match order " + order);
+            }
+            return new KeysetCursor(order, Long.valueOf(parts[1]), parts[2]);
+        } catch (IllegalArgumentException e) { // base64, enum, 숫자 파싱 실패 모두 포함
+            throw new IllegalArgumentException("invalid keyset cursor: " + token, e);
+        }
+    }
+
+    String encode() {
+        String raw = order.name() + DELIMITER + id + DELIMITER + (username == null ? "" : username);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Long getId() {
+        return id;
+    }
+
+    String getUsername() {
+        return username;
+    }
+}
@@ -0,0 +1,11 @@
+package study.datajpa.repository;
+
+/**
+ * keyset(seek) 페이징 정렬 기준
+ * ID : member_id 오름차순
+ * USERNAME_ID : (username, member_id) 오름차순
+ */
+public enum KeysetOrder {
+    ID,
+    USERNAME_ID
+}
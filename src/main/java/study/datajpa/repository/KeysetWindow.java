@@ -0,0 +1,44 @@
+package study.datajpa.repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * keyset(seek) 페이징 결과
+ * 다음 페이지는 offset 이 아니라 nextCursor 로 조회한다. (count 쿼리 없음)
+ */
+public class KeysetWindow<T> {
+
+    private final List<T> content;
+    private final String nextCursor; // 마지막 페이지면 null
+
+    public KeysetWindow(List<T> content, String nextCursor) {
+        this.content = Collections.unmodifiableList(content);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isLast() {
+        return nextCursor == null;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public <R> KeysetWindow<R> map(Function<? super T, ? extends R> converter) {
+        List<R> converted = content.stream()
+                .map(converter)
+                .collect(Collectors.toList());
+        return new KeysetWindow<>(converted, nextCursor);
+    }
+}
@@ -0,0 +1,155 @@
+package study.datajpa.repository;
+
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.audit.AuditClock;
+import study.datajpa.changes.MemberChangeSequence;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEventType;
+import study.datajpa.outbox.OutboxEvents;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 대용량 bulk update
+ * 한번에 전체를 update 하지 않고 member_id 구간(chunk) 단위로 나눠서 chunk 마다 커밋한다. (락을 짧게 잡는다)
+ * clearAutomatically 처럼 영속성 컨텍스트 전체를 비우지 않고, 변경된 회원만 영속성 컨텍스트와 2차 캐시에서 내린다.
+ *
+ * chunk 는 새 트랜잭션(REQUIRES_NEW)에서 실행되므로 호출한 트랜잭션에서 수정한 회원이 있으면 먼저 커밋해야 한다. (row lock 대기)
+ */
+@Repository
+public class MemberBulkUpdateRepository {
+
+    // 엔티티 region 전체가 evict 되지 않도록 native update 에는 실제 테이블이 아닌 query space 를 건다.
+    private static final String CHUNK_QUERY_SPACE = "member_bulk_chunk";
+    private static final String[] MEMBER_QUERY_SPACES = {"member"};
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate chunkTransaction;
+
+    public MemberBulkUpdateRepository(PlatformTransactionManager transactionManager) {
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * MemberRepository.bulkAgePlus 의 chunk 버전
+     * @return update 된 row 수
+     */
+    public long bulkAgePlus(int age, int chunkSize, Consumer<BulkUpdateProgress> listener) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be greater than 0");
+        }
+        SessionImplementor callerSession = TransactionSynchronizationManager.isActualTransactionActive()
+                ? em.unwrap(SessionImplementor.class)
+                : null;
+
+        Object[] range = em.createQuery("select min(m.id), max(m.id) from Member m where m.age >= :age", Object[].class)
+                .setParameter("age", age)
+                .getSingleResult();
+        if (range[0] == null) {
+            return 0;
+        }
+        long minId = (Long) range[0];
+        long maxId = (Long) range[1];
+
+        long updatedTotal = 0;
+        int chunk = 0;
+        for (long from = minId; from <= maxId; from += chunkSize) {
+            long chunkFrom = from;
+            long chunkTo = from + chunkSize;
+            List<Long> ids = chunkTransaction.execute(status -> updateChunk(age, chunkFrom, chunkTo));
+
+            updatedTotal += ids.size();
+            if (callerSession != null) {
+                detach(callerSession, ids);
+            }
+            listener.accept(new BulkUpdateProgress(++chunk, chunkFrom, chunkTo, maxId, ids.size(), updatedTotal));
+        }
+        return updatedTotal;
+    }
+
+    private List<Long> updateChunk(int age, long from, long to) {
+        // 고른 row 를 잠가서 update 까지 다른 트랜잭션이 age 를 바꾸지 못하게 한다. (update 는 id 로만 찾는다)
+        List<Long> ids = em.createQuery("select m.id from Member m" +
+                " where m.id >= :from and m.id < :to and m.age >= :age", Long.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setParameter("age", age)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return ids;
+        }
+
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        evictFromSecondLevelCache(session, ids);
+
+        em.createNativeQuery("update member set age = age + 1, version = version + 1, last_modified_date = :now, change_tx = :changeTx" +
+                " where member_id in (:ids)")
+                .setParameter("ids", ids)
+                .setParameter("now", AuditClock.now())
+                .setParameter("changeTx", MemberChangeSequence.token(em))
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(CHUNK_QUERY_SPACE)
+                .executeUpdate();
+        em.createNativeQuery("update member_summary set age = age + 1 where member_id in (:ids)")
+                .setParameter("ids", ids)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("member_summary")
+                .executeUpdate();
+        OutboxEvents.appendMembers(em, OutboxEventType.UPDATED, "m.member_id in (:ids)", Collections.singletonMap("ids", ids));
+        return ids;
+    }
+
+    // 변경된 회원만 2차 캐시에서 내리고 member 쿼리 캐시를 무효화한다. (커밋 전 pre-invalidate, 커밋 후 invalidate)
+    private void evictFromSecondLevelCache(SessionImplementor session, List<Long> ids) {
+        SessionFactoryImplementor factory = session.getFactory();
+        if (!factory.getSessionFactoryOptions().isSecondLevelCacheEnabled()) {
+            return;
+        }
+        boolean queryCacheEnabled = factory.getSessionFactoryOptions().isQueryCacheEnabled();
+        TimestampsCache timestampsCache = factory.getCache().getTimestampsCache();
+        if (queryCacheEnabled) {
+            timestampsCache.preInvalidate(MEMBER_QUERY_SPACES, session);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                ids.forEach(id -> factory.getCache().evictEntityData(Member.class, id));
+                if (queryCacheEnabled) {
+                    timestampsCache.invalidate(MEMBER_QUERY_SPACES, session);
+                }
+            }
+        });
+    }
+
+    // 호출한 쪽 영속성 컨텍스트에서 변경된 회원만 준영속으로 만든다. (나머지 엔티티는 그대로 유지)
+    private void detach(SessionImplementor session, List<Long> ids) {
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        for (Long id : ids) {
+            EntityKey key = session.generateEntityKey(id, persister);
+            Object member = session.getPersistenceContext().getEntity(key);
+            if (member != null) {
+                session.evict(member);
+            }
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package study.datajpa.repository;
 
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
+import study.datajpa.audit.AuditClock;
+import study.datajpa.changes.MemberChangeSequence;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEventType;
+import study.datajpa.outbox.OutboxEvents;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -72,8 +78,18 @@ public class MemberJpaRepository {
     }
 
     public int bulkAgePlus(int age) {
-        return em.createQuery("update Member m set m.age = m.age + 1 where m.age >= :age")
+        int updated = em.createQuery("update versioned Member m set m.age = m.age + 1, m.lastModifiedDate = :now, m.changeTx = :changeTx" +
+                " where m.age >= :age")
                 .setParameter("age", age)
+                .setParameter("now", AuditClock.now())
+                .setParameter("changeTx", MemberChangeSequence.token(em))
                 .executeUpdate();
+        em.createNativeQuery("update member_summary set age = age + 1 where age >= :age")
+                .setParameter("age", age)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("member_summary")
+                .executeUpdate();
+        OutboxEvents.appendMembers(em, OutboxEventType.UPDATED, "m.age > :age", Collections.singletonMap("age", age));
+        return updated;
     }
 }
\ No newline at end of file
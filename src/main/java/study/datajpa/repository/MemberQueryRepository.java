@@ -2,19 +2,47 @@ package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
 import javax.persistence.EntityManager;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class MemberQueryRepository { // MemberRepository 인터페이스 구현이 아닌 복잡한 쿼리일때 사용하는 Repository
 
+    private static final int EXPORT_FETCH_SIZE = 500;
+
     private final EntityManager em;
 
     List<Member> findAllMembers(){
         return em.createQuery("select m from Member m")
                 .getResultList();
     }
+
+    /**
+     * 전체 회원을 List 로 만들지 않고 커서로 한 건씩 consumer 에 넘긴다.
+     * DTO 로 조회하므로 영속성 컨텍스트에 엔티티가 쌓이지 않는다. (테이블 크기와 상관없이 메모리 일정)
+     */
+    @Transactional(readOnly = true)
+    public long exportMembers(Consumer<MemberDto> consumer) {
+        long count = 0;
+        try (Stream<MemberDto> stream = em.createQuery(
+                "select new study.datajpa.dto.MemberDto(s.id, s.username, s.teamName)" +
+                        " from MemberSummary s order by s.id", MemberDto.class)
+                .setHint("org.hibernate.fetchSize", EXPORT_FETCH_SIZE) // jdbc 드라이버가 한번에 가져올 row 수
+                .getResultStream()) {
+            Iterator<MemberDto> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
 }
@@ -5,6 +5,8 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
@@ -12,6 +14,7 @@ import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom {
 
@@ -20,6 +23,7 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     List<Member> findTop3HelloBy();
 
 //    @Query(name = "Member.findByUsername") // 관례가 있어서 있어도 없어도 동작한다.
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true")) // 쿼리 캐시 (member 테이블이 바뀌면 무효화)
     List<Member> findByUsername(@Param("username") String username);
 
     @Query("select m from Member m where m.username = :username and m.age = :age")
@@ -28,11 +32,12 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     @Query("select m.username from Member m")
     List<String> findUsernameList();
 
-    //DTO 로 조회하기
-    @Query("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name) from Member m join m.team t")
+    //DTO 로 조회하기 - join 없이 member_summary 에서 읽는다. (팀이 있는 회원만)
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    @Query("select new study.datajpa.dto.MemberDto(s.id, s.username, s.teamName) from MemberSummary s where s.teamId is not null")
     List<MemberDto> findMemberDto();
 
-    //컬렉션 파라미터로 넣기
+    //컬렉션 파라미터로 넣기 (in_clause_parameter_padding : 크기가 달라도 1, 2, 4, 8 ... 개짜리 SQL 로 재사용)
     @Query("select m from Member m where m.username in :names")
     List<Member> findByNames(@Param("names") List<String> names);
 
@@ -42,15 +47,14 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     Optional<Member> findOptionalListByUsername(String username);
 
     //paging
-    @Query(value = "select m from Member m left join m.team t")
-//            ,countQuery = "select count(m) from Member m") // 페이지가 많으면 countQuery 를 사용해야한다.
-    Page<Member> findByAge(int age, Pageable pageable);
+    @Query(value = "select m from Member m left join m.team t",
+            countQuery = "select count(m) from Member m") // 페이지가 많으면 countQuery 를 사용해야한다. (count 에 join 불필요)
+    Page<Member> findByAge(int age, Pageable pageable); // count 를 병렬로 돌리려면 findPageByAge(age, pageable, CountMode.PARALLEL)
+    // count 를 캐시하거나 생략하려면 findPageByAge(age, pageable, CountMode) 를 사용한다.
 
     Slice<Member> findSliceByAge(int age, Pageable pageable);
 
-    @Modifying(clearAutomatically = true) //<--필수 애너테이션 / 자동으로 clear
-    @Query("update Member m set m.age = m.age + 1 where m.age >= :age")
-    int bulkAgePlus(@Param("age") int age);
+    //bulk update 는 MemberRepositoryCustom.bulkAgePlus (member_summary 도 같이 갱신)
 
     //fetch 조인
     @Query("select m from Member m left join fetch m.team")
@@ -70,13 +74,25 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     List<Member> findEntityGraphByUsername(@Param("username") String username);
 
     //JPA Hint : Member 를 조회만 하겠다고 하이버네이트에 말하는것임 -> 최적화
+    //readOnly 트랜잭션 -> replica 설정이 있으면 replica 에서 조회 (쓰기 트랜잭션 안에서 호출하면 primary)
+    @Transactional(readOnly = true)
     @QueryHints(value = @QueryHint(name = "org.hibernate.readOnly", value = "true"))
     Member findReadOnlyByUsername(String username);
 
     //JPA lock
     @Lock(LockModeType.PESSIMISTIC_WRITE) // db 에서 select for update 처럼 건들지 못하게 락 건다.
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "3000")) // 락 대기 상한 (ms, 지원하지 않는 DB 는 무시)
     List<Member> findLockByUsername(String username);
 
+    //낙관적 락 - 락 없이 조회하고 커밋할때 version 을 확인한다. (수정은 OptimisticRetry 로 재시도)
+    @Lock(LockModeType.OPTIMISTIC)
+    List<Member> findOptimisticByUsername(String username);
+
+    //큐처럼 여러 worker 가 나눠 가져갈때 - 다른 트랜잭션이 잠근 row 는 기다리지 않고 건너뛴다. (lock.timeout -2 = SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    List<Member> findSkipLockedByAgeGreaterThanEqualOrderByIdAsc(int age, Pageable pageable);
+
     //Projections
     List<UsernameOnly> findInterfaceProjectionsByUsername(@Param("username") String username);
 
@@ -85,13 +101,21 @@ public interface MemberRepository extends JpaRepository<Member, Long>, MemberRep
     //동적 Projections
     <T> List<T> findProjectionsByUsername(@Param("username") String username, Class<T> type);
 
+    //비동기 조회 - repositoryExecutor 스레드에서 실행 (query timeout 3초)
+    @Async("repositoryExecutor")
+    @QueryHints(@QueryHint(name = "javax.persistence.query.timeout", value = "3000"))
+    CompletableFuture<Page<Member>> findAsyncBy(Pageable pageable);
+
+    @Async("repositoryExecutor")
+    @QueryHints(@QueryHint(name = "javax.persistence.query.timeout", value = "3000"))
+    CompletableFuture<Member> findAsyncById(Long id); // 없으면 null
+
     @Query(value = "select * from member where username = ?", nativeQuery = true)
     Member findByNativeQuery(String username);
 
-    @Query(value = "select m.member_id as id, m.username, t.name as teamName" +
-            " from member m left join team t",
-            countQuery = "select count(*) from member",
+    @Query(value = "select s.member_id as id, s.username, s.team_name as teamName from member_summary s",
+            countQuery = "select count(*) from member_summary",
             nativeQuery = true)
-    Page<MemberProjection> findByNativeProjection(Pageable pageable);
+    Page<MemberProjection> findByNativeProjection(Pageable pageable); // findNativeProjectionPage(pageable, CountMode) 참고
 
 }
@@ -1,10 +1,42 @@
 package study.datajpa.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import study.datajpa.entity.Member;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface MemberRepositoryCustom {
     List<Member> findMemberCustom();
 
+    //keyset(seek) 페이징 - cursor 가 null 이면 첫 페이지
+    KeysetWindow<Member> findMemberWindow(KeysetOrder order, String cursor, int size);
+
+    //증분 동기화 - watermark 이후에 커밋된 회원 변경을 (커밋 순서 번호, id) 순서로 limit 건 (삭제는 outbox 이벤트로 받는다)
+    ChangeSet<Member> changesSince(ChangeWatermark watermark, int limit);
+
+    //count 전략을 선택하는 paging
+    Page<Member> findPageByAge(int age, Pageable pageable, CountMode countMode);
+
+    //member_id 순서 고정 - pageable 에 정렬이 있으면 IllegalArgumentException
+    Page<MemberProjection> findNativeProjectionPage(Pageable pageable, CountMode countMode);
+
+    //findAll(Pageable) 에 count 전략 적용
+    Page<Member> findMemberPage(Pageable pageable, CountMode countMode);
+
+    CompletableFuture<Page<Member>> findMemberPageAsync(Pageable pageable, CountMode countMode);
+
+    //대량 저장 - batchSize 마다 flush 하고 저장한 회원만 detach (저장 후 회원은 준영속 상태), 저장 외의 batch 작업은 BoundedUnitOfWork
+    int saveAllBatched(Iterable<Member> members, int batchSize);
+
+    //age 이상인 회원 나이 +1 (member_summary 도 같이 갱신, 실행 후 영속성 컨텍스트 clear)
+    //대용량 테이블은 MemberBulkUpdateRepository 로 구간을 나눠서 실행한다.
+    int bulkAgePlus(int age);
+
+    //JpaRepository 의 batch 삭제를 대신한다. (bulk delete 는 리스너를 거치지 않으므로 member_summary 도 같이 삭제)
+    void deleteInBatch(Iterable<Member> members);
+
+    void deleteAllInBatch();
+
 }
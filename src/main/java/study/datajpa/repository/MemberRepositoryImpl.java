@@ -1,18 +1,284 @@
 package study.datajpa.repository;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.audit.AuditClock;
+import study.datajpa.changes.MemberChangeSequence;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEventType;
+import study.datajpa.outbox.OutboxEvents;
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+    // 비동기 목록 조회(findMemberPageAsync)는 요청이 timeout 되어도 스레드가 끊기지 않으므로 DB 쪽에서 끊는다. (findAsyncBy 와 같은 값)
+    private static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+    private static final int QUERY_TIMEOUT_MILLIS = 3000;
+
     private final EntityManager em;
+    private final PageCountSupport pageCountSupport;
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
 
     @Override
     public List<Member> findMemberCustom() {
         return em.createQuery("select m from Member m")
                 .getResultList();
     }
+
+    @Override
+    public KeysetWindow<Member> findMemberWindow(KeysetOrder order, String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be greater than 0");
+        }
+        KeysetCursor after = cursor == null ? null : KeysetCursor.decode(order, cursor);
+
+        TypedQuery<Member> query = order == KeysetOrder.ID
+                ? windowById(after)
+                : windowByUsernameAndId(after);
+
+        // 한 건 더 읽어서 다음 페이지 존재 여부를 판단한다. (count 쿼리, offset 없음)
+        List<Member> result = query
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        if (result.size() <= size) {
+            return new KeysetWindow<>(result, null);
+        }
+        List<Member> content = result.subList(0, size);
+        Member last = content.get(size - 1);
+        return new KeysetWindow<>(content, KeysetCursor.of(order, last).encode());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ChangeSet<Member> changesSince(ChangeWatermark watermark, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be greater than 0");
+        }
+
+        // change_seq 는 커밋 순서대로 매겨지므로 (MemberChangeSequence) 보이지 않는 번호가 watermark 뒤에 끼어들지 않는다.
+        // (changeSeq, id) > watermark 를 인덱스(idx_member_change_seq_id) 범위 조건으로 쓸 수 있게 풀어쓴다.
+        TypedQuery<Member> query;
+        if (watermark.isInitial()) {
+            query = em.createQuery("select m from Member m" +
+                    " where m.changeSeq is not null" +
+                    " order by m.changeSeq asc, m.id asc", Member.class);
+        } else {
+            query = em.createQuery("select m from Member m" +
+                    " where m.changeSeq >= :changeSeq" +
+                    " and (m.changeSeq > :changeSeq or m.id > :id)" +
+                    " order by m.changeSeq asc, m.id asc", Member.class)
+                    .setParameter("changeSeq", watermark.getChangeSeq())
+                    .setParameter("id", watermark.getId());
+        }
+        List<Member> result = query
+                .setMaxResults(limit + 1) // 한 건 더 읽어서 남은 변경이 있는지 판단한다.
+                .getResultList();
+
+        boolean hasMore = result.size() > limit;
+        List<Member> content = hasMore ? result.subList(0, limit) : result;
+        if (content.isEmpty()) {
+            return new ChangeSet<>(content, watermark, false);
+        }
+        Member last = content.get(content.size() - 1);
+        return new ChangeSet<>(content, ChangeWatermark.of(last.getChangeSeq(), last.getId()), hasMore);
+    }
+
+    @Override
+    public Page<Member> findPageByAge(int age, Pageable pageable, CountMode countMode) {
+        String contentJpql = QueryUtils.applySorting("select m from Member m where m.age = :age", pageable.getSort(), "m");
+        String countJpql = "select count(m) from Member m where m.age = :age"; // count 에는 join 이 필요없다.
+
+        return pageCountSupport.getPage(pageable, countMode,
+                (offset, limit) -> em.createQuery(contentJpql, Member.class)
+                        .setParameter("age", age)
+                        .setFirstResult((int) offset)
+                        .setMaxResults(limit)
+                        .getResultList(),
+                countJpql + ":" + age, "member",
+                () -> em.createQuery(countJpql, Long.class)
+                        .setParameter("age", age)
+                        .getSingleResult());
+    }
+
+    @Override
+    public Page<MemberProjection> findNativeProjectionPage(Pageable pageable, CountMode countMode) {
+        if (pageable.getSort().isSorted()) {
+            throw new IllegalArgumentException("findNativeProjectionPage is always ordered by member_id, sort is not supported: " + pageable.getSort());
+        }
+        String contentSql = "select s.member_id, s.username, s.team_name" +
+                " from member_summary s" +
+                " order by s.member_id"; // member_id 순으로 고정
+        String countSql = "select count(*) from member_summary";
+
+        return pageCountSupport.getPage(pageable, countMode,
+                (offset, limit) -> {
+                    List<Object[]> rows = em.createNativeQuery(contentSql)
+                            .setFirstResult((int) offset)
+                            .setMaxResults(limit)
+                            .getResultList();
+                    return rows.stream()
+                            .map(this::toMemberProjection)
+                            .collect(Collectors.toList());
+                },
+                countSql, "member_summary",
+                () -> ((Number) em.createNativeQuery(countSql).getSingleResult()).longValue());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Member> findMemberPage(Pageable pageable, CountMode countMode) {
+        String contentJpql = QueryUtils.applySorting("select m from Member m", pageable.getSort(), "m");
+        String countJpql = "select count(m) from Member m";
+
+        return pageCountSupport.getPage(pageable, countMode,
+                (offset, limit) -> em.createQuery(contentJpql, Member.class)
+                        .setHint(QUERY_TIMEOUT_HINT, QUERY_TIMEOUT_MILLIS)
+                        .setFirstResult((int) offset)
+                        .setMaxResults(limit)
+                        .getResultList(),
+                countJpql, "member",
+                () -> em.createQuery(countJpql, Long.class)
+                        .setHint(QUERY_TIMEOUT_HINT, QUERY_TIMEOUT_MILLIS)
+                        .getSingleResult());
+    }
+
+    @Override
+    @Async("repositoryExecutor")
+    @Transactional(readOnly = true)
+    public CompletableFuture<Page<Member>> findMemberPageAsync(Pageable pageable, CountMode countMode) {
+        return CompletableFuture.completedFuture(findMemberPage(pageable, countMode));
+    }
+
+    @Override
+    @Transactional
+    public int saveAllBatched(Iterable<Member> members, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        // insert 를 jdbc batch 로 내보내고 저장한 회원만 준영속으로 만들어서 메모리를 일정하게 유지한다.
+        // clear 를 쓰지 않으므로 호출한 쪽에서 미리 조회한 엔티티는 영속 상태로 남는다.
+        List<Member> batch = new ArrayList<>(batchSize);
+        int count = 0;
+        for (Member member : members) {
+            em.persist(member);
+            batch.add(member);
+            count++;
+            if (batch.size() == batchSize) {
+                flushAndDetach(batch);
+            }
+        }
+        flushAndDetach(batch);
+        return count;
+    }
+
+    private void flushAndDetach(List<Member> batch) {
+        em.flush();
+        batch.forEach(em::detach);
+        // 팀의 members 가 초기화되어 있으면 detach 한 회원을 계속 들고 있으므로 빼 준다.
+        Set<Object> detached = Collections.newSetFromMap(new IdentityHashMap<>());
+        detached.addAll(batch);
+        InverseCollections.release(em.unwrap(SessionImplementor.class), detached);
+        batch.clear();
+    }
+
+    @Override
+    @Transactional
+    public int bulkAgePlus(int age) {
+        // versioned : @Version 도 같이 증가, lastModifiedDate 도 직접 갱신한다. (bulk update 는 auditing 을 거치지 않는다)
+        int updated = em.createQuery("update versioned Member m set m.age = m.age + 1, m.lastModifiedDate = :now, m.changeTx = :changeTx" +
+                " where m.age >= :age")
+                .setParameter("age", age)
+                .setParameter("now", AuditClock.now())
+                .setParameter("changeTx", MemberChangeSequence.token(em))
+                .executeUpdate();
+        // bulk update 는 리스너를 거치지 않으므로 같은 조건으로 member_summary 도 갱신한다.
+        em.createNativeQuery("update member_summary set age = age + 1 where age >= :age")
+                .setParameter("age", age)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("member_summary")
+                .executeUpdate();
+        // update 이후 age > :age 인 회원 = 이번에 +1 된 회원
+        OutboxEvents.appendMembers(em, OutboxEventType.UPDATED, "m.age > :age", Collections.singletonMap("age", age));
+        em.clear();
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public void deleteInBatch(Iterable<Member> members) {
+        List<Long> ids = new ArrayList<>();
+        members.forEach(member -> ids.add(member.getId()));
+        if (ids.isEmpty()) {
+            return;
+        }
+        OutboxEvents.appendMembers(em, OutboxEventType.DELETED, "m.member_id in (:ids)", Collections.singletonMap("ids", ids));
+        em.createNativeQuery("delete from member_summary where member_id in (:ids)")
+                .setParameter("ids", ids)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("member_summary")
+                .executeUpdate();
+        em.createQuery("delete from Member m where m.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllInBatch() {
+        OutboxEvents.appendMembers(em, OutboxEventType.DELETED, "1 = 1", Collections.emptyMap());
+        em.createNativeQuery("delete from member_summary")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("member_summary")
+                .executeUpdate();
+        em.createQuery("delete from Member m").executeUpdate();
+    }
+
+    private MemberProjection toMemberProjection(Object[] row) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("id", row[0] == null ? null : ((Number) row[0]).longValue());
+        values.put("username", row[1]);
+        values.put("teamName", row[2]);
+        return projectionFactory.createProjection(MemberProjection.class, values);
+    }
+
+    private TypedQuery<Member> windowById(KeysetCursor after) {
+        if (after == null) {
+            return em.createQuery("select m from Member m order by m.id asc", Member.class);
+        }
+        return em.createQuery("select m from Member m where m.id > :id order by m.id asc", Member.class)
+                .setParameter("id", after.getId());
+    }
+
+    // username 이 null 인 회원은 비교 조건에 걸리지 않으므로 첫 페이지 이후에는 제외된다. (그런 경우 ID 정렬을 사용)
+    private TypedQuery<Member> windowByUsernameAndId(KeysetCursor after) {
+        if (after == null) {
+            return em.createQuery("select m from Member m order by m.username asc, m.id asc", Member.class);
+        }
+        return em.createQuery("select m from Member m" +
+                " where m.username > :username" +
+                " or (m.username = :username and m.id > :id)" +
+                " order by m.username asc, m.id asc", Member.class)
+                .setParameter("username", after.getUsername())
+                .setParameter("id", after.getId());
+    }
 }
@@ -0,0 +1,151 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.audit.AuditClock;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberWork;
+import study.datajpa.entity.WorkStatus;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 여러 batch worker (여러 노드) 가 회원을 겹치지 않게 나눠 가져가는 작업 큐
+ * enqueue 한 회원만 큐에 들어간다. 상태/lease 는 member_work 테이블에 있으므로 claim/complete 는 회원 row 를 수정하지 않는다.
+ *
+ * claim 은 짧은 트랜잭션으로 select ... for update skip locked -> lease 기록 -> 커밋 한다.
+ * 다른 worker 가 잠근 row 는 기다리지 않고 건너뛰고, 커밋 후에는 status/lease 로 구분하므로 row 락을 오래 잡지 않는다.
+ * worker 가 죽으면 lease 가 만료된 뒤 다른 worker 가 다시 가져간다.
+ *
+ * SKIP LOCKED 를 지원하지 않는 dialect (H2 등) 는 일반 for update 로 동작한다. (락 대기 발생)
+ *
+ * workerId 를 생략하면 스레드마다 다른 id (worker-id 또는 pid@host + #번호) 를 쓴다.
+ * 같은 노드의 여러 스레드가 같은 id 를 쓰면 서로의 lease 를 complete/release 할 수 있다.
+ */
+@Repository
+public class MemberWorkQueue {
+
+    private final MemberRepository memberRepository;
+    private final MemberWorkRepository memberWorkRepository;
+    private final TransactionTemplate claimTransaction;
+    private final ThreadLocal<String> defaultWorkerId;
+    private final Duration defaultLease;
+
+    public MemberWorkQueue(MemberRepository memberRepository,
+                           MemberWorkRepository memberWorkRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${datajpa.work-queue.worker-id:}") String workerId,
+                           @Value("${datajpa.work-queue.lease-seconds:300}") long leaseSeconds) {
+        this.memberRepository = memberRepository;
+        this.memberWorkRepository = memberWorkRepository;
+        this.claimTransaction = new TransactionTemplate(transactionManager);
+        this.claimTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        String node = workerId.isEmpty() ? ManagementFactory.getRuntimeMXBean().getName() : workerId; // pid@host
+        AtomicInteger sequence = new AtomicInteger();
+        this.defaultWorkerId = ThreadLocal.withInitial(() -> node + "#" + sequence.incrementAndGet());
+        this.defaultLease = Duration.ofSeconds(leaseSeconds);
+    }
+
+    //workerId 를 생략한 호출이 이 스레드에서 사용하는 id
+    public String currentWorkerId() {
+        return defaultWorkerId.get();
+    }
+
+    /**
+     * 회원을 큐에 넣는다. 처음 넣는 회원과 완료(DONE)된 회원은 READY 가 되고, 대기/처리 중인 회원은 그대로 둔다.
+     * @return READY 가 된 수
+     */
+    public int enqueue(Collection<Long> memberIds) {
+        if (memberIds.isEmpty()) {
+            return 0;
+        }
+        return claimTransaction.execute(status -> {
+            Map<Long, MemberWork> existing = memberWorkRepository.findAllById(memberIds).stream()
+                    .collect(Collectors.toMap(MemberWork::getMemberId, Function.identity()));
+            int queued = 0;
+            for (Long memberId : memberIds) {
+                MemberWork work = existing.get(memberId);
+                if (work == null) {
+                    work = memberWorkRepository.save(new MemberWork(memberId));
+                    existing.put(memberId, work);
+                    queued++;
+                } else if (work.getStatus() == WorkStatus.DONE) {
+                    work.finish(WorkStatus.READY);
+                    queued++;
+                }
+            }
+            return queued;
+        });
+    }
+
+    public List<Member> claimBatch(int size) {
+        return claimBatch(size, currentWorkerId(), defaultLease);
+    }
+
+    /**
+     * 그 사이 삭제된 회원의 작업은 큐에서 지우므로 size 보다 적게 가져갈 수 있다.
+     * @return 가져간 회원 (준영속, 회원 id 순). 처리 후 complete 또는 release 를 호출한다.
+     */
+    public List<Member> claimBatch(int size, String workerId, Duration lease) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be greater than 0");
+        }
+        return claimTransaction.execute(status -> {
+            LocalDateTime now = AuditClock.now();
+            List<MemberWork> works = memberWorkRepository.findClaimable(now, PageRequest.of(0, size));
+            works.forEach(work -> work.claim(workerId, now.plus(lease)));
+
+            List<Long> memberIds = works.stream().map(MemberWork::getMemberId).collect(Collectors.toList());
+            Map<Long, Member> members = memberRepository.findAllById(memberIds).stream()
+                    .collect(Collectors.toMap(Member::getId, Function.identity()));
+            memberWorkRepository.deleteAll(works.stream()
+                    .filter(work -> !members.containsKey(work.getMemberId()))
+                    .collect(Collectors.toList()));
+            return memberIds.stream().map(members::get).filter(Objects::nonNull).collect(Collectors.toList());
+        });
+    }
+
+    public int complete(Collection<Long> memberIds) {
+        return complete(memberIds, currentWorkerId());
+    }
+
+    /**
+     * @return 완료 처리된 수 (lease 를 잃어서 다른 worker 가 가져간 회원은 제외)
+     */
+    public int complete(Collection<Long> memberIds, String workerId) {
+        return finish(memberIds, workerId, WorkStatus.DONE);
+    }
+
+    public int release(Collection<Long> memberIds) {
+        return release(memberIds, currentWorkerId());
+    }
+
+    //처리하지 못한 회원을 lease 만료 전에 돌려놓는다.
+    public int release(Collection<Long> memberIds, String workerId) {
+        return finish(memberIds, workerId, WorkStatus.READY);
+    }
+
+    private int finish(Collection<Long> memberIds, String workerId, WorkStatus status) {
+        if (memberIds.isEmpty()) {
+            return 0;
+        }
+        return claimTransaction.execute(tx -> {
+            List<MemberWork> owned = memberWorkRepository.findOwned(memberIds, workerId);
+            owned.forEach(work -> work.finish(status));
+            return owned.size();
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package study.datajpa.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import study.datajpa.entity.MemberWork;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface MemberWorkRepository extends JpaRepository<MemberWork, Long> {
+
+    //대기 중이거나 lease 가 만료된 작업을 SKIP LOCKED 로 잠근다. (lock.timeout -2 = SKIP LOCKED, MemberWorkQueue.claimBatch)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select w from MemberWork w" +
+            " where w.status = study.datajpa.entity.WorkStatus.READY" +
+            " or (w.status = study.datajpa.entity.WorkStatus.CLAIMED and w.leaseExpiresAt < :now)" +
+            " order by w.memberId")
+    List<MemberWork> findClaimable(@Param("now") LocalDateTime now, Pageable pageable);
+
+    //이 worker 가 lease 를 가진 작업만 잠근다. (complete/release)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from MemberWork w where w.memberId in :ids and w.leaseOwner = :workerId" +
+            " and w.status = study.datajpa.entity.WorkStatus.CLAIMED")
+    List<MemberWork> findOwned(@Param("ids") Collection<Long> ids, @Param("workerId") String workerId);
+}
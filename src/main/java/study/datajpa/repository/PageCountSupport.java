@@ -0,0 +1,224 @@
+package study.datajpa.repository;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * CountMode 에 따라 content 쿼리와 count 쿼리를 조합해서 Page 를 만든다.
+ */
+@Component
+public class PageCountSupport {
+
+    private static final int MAX_CACHED_COUNTS = 10_000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final long countTtlMillis;
+    private final long countWaitMillis;
+    private final Map<String, CachedCount> countCache = Collections.synchronizedMap(new LinkedHashMap<String, CachedCount>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedCount> eldest) {
+            return size() > MAX_CACHED_COUNTS; // 가장 오래 사용하지 않은 count 부터 버린다. (LRU)
+        }
+    });
+    private final TransactionTemplate countTransaction;
+    private final Executor countExecutor;
+
+    public PageCountSupport(@Value("${datajpa.paging.count-cache-ttl-seconds:60}") long countTtlSeconds,
+                            @Value("${datajpa.paging.count-wait-millis:1000}") long countWaitMillis,
+                            PlatformTransactionManager transactionManager,
+                            @Qualifier("pageCountExecutor") Executor countExecutor) {
+        this.countTtlMillis = countTtlSeconds * 1000;
+        this.countWaitMillis = countWaitMillis;
+        this.countTransaction = new TransactionTemplate(transactionManager);
+        this.countTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.countTransaction.setReadOnly(true);
+        this.countExecutor = countExecutor;
+    }
+
+    /**
+     * @param countKey   CACHED 모드의 캐시 키 (count 쿼리 + 파라미터)
+     * @param table      ESTIMATED 모드에서 통계를 읽을 테이블
+     * @param exactCount 정확한 count 쿼리
+     */
+    public <T> Page<T> getPage(Pageable pageable, CountMode mode, ContentQuery<T> contentQuery,
+                               String countKey, String table, LongSupplier exactCount) {
+        if (pageable.isUnpaged()) {
+            List<T> all = contentQuery.fetch(0, Integer.MAX_VALUE);
+            return new PageImpl<>(all, pageable, all.size());
+        }
+
+        if (mode == CountMode.HAS_MORE) {
+            return hasMorePage(pageable, contentQuery);
+        }
+
+        if (mode == CountMode.PARALLEL) {
+            return parallelPage(pageable, contentQuery, exactCount);
+        }
+
+        List<T> content = contentQuery.fetch(pageable.getOffset(), pageable.getPageSize());
+        // 첫 페이지가 덜 찼거나 마지막 페이지면 count 쿼리를 생략한다.
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(mode, countKey, table, exactCount));
+    }
+
+    // 다음 페이지가 없으면 여기까지가 전체이므로 정확한 total 을 채운다.
+    private <T> Page<T> hasMorePage(Pageable pageable, ContentQuery<T> contentQuery) {
+        int size = pageable.getPageSize();
+        List<T> result = contentQuery.fetch(pageable.getOffset(), size + 1);
+        if (result.size() > size) {
+            return new HasMorePage<>(result.subList(0, size), pageable, true);
+        }
+        if (result.isEmpty() && pageable.getOffset() > 0) {
+            return new HasMorePage<>(result, pageable, false); // 범위를 넘어선 페이지 - 앞쪽 개수를 모른다.
+        }
+        return new PageImpl<>(result, pageable, pageable.getOffset() + result.size());
+    }
+
+    /**
+     * count 는 pageCountExecutor 스레드의 새 읽기 전용 트랜잭션(= 다른 커넥션)에서, content 는 호출 스레드에서 실행한다.
+     * 두 쿼리는 서로 다른 트랜잭션이므로 같은 스냅샷을 보장하지 않고, 호출자 트랜잭션에서 아직 커밋하지 않은 변경은 count 에 보이지 않는다.
+     * 풀이 가득 차거나 count 가 countWaitMillis 안에 끝나지 않으면 (커넥션 풀 고갈 등) 호출자 커넥션에서 순차 실행한다.
+     */
+    private <T> Page<T> parallelPage(Pageable pageable, ContentQuery<T> contentQuery, LongSupplier exactCount) {
+        CompletableFuture<Long> count;
+        try {
+            count = CompletableFuture.supplyAsync(() -> countTransaction.execute(status -> exactCount.getAsLong()), countExecutor);
+        } catch (RejectedExecutionException e) {
+            count = null;
+        }
+
+        List<T> content = contentQuery.fetch(pageable.getOffset(), pageable.getPageSize());
+        if (count == null) {
+            return PageableExecutionUtils.getPage(content, pageable, exactCount);
+        }
+
+        // 마지막 페이지면 content 만으로 total 을 알 수 있다. count 결과는 버린다.
+        // cancel 은 아직 시작하지 않은 count 만 막는다. 실행 중인 count 는 끝까지 돌고 결과만 버려진다.
+        if ((pageable.getOffset() == 0 || !content.isEmpty()) && content.size() < pageable.getPageSize()) {
+            count.cancel(false);
+            return new PageImpl<>(content, pageable, pageable.getOffset() + content.size());
+        }
+        Long total = await(count);
+        if (total == null) {
+            return new PageImpl<>(content, pageable, exactCount.getAsLong());
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    // countWaitMillis 안에 끝나지 않으면 null
+    private Long await(CompletableFuture<Long> count) {
+        try {
+            return count.get(countWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            count.cancel(false);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            count.cancel(false);
+            throw new IllegalStateException("interrupted while waiting for page count", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("page count failed", e.getCause());
+        }
+    }
+
+    public void evictCachedCounts() {
+        countCache.clear();
+    }
+
+    private long count(CountMode mode, String countKey, String table, LongSupplier exactCount) {
+        switch (mode) {
+            case CACHED:
+                return cachedCount(countKey, exactCount);
+            case ESTIMATED:
+                long estimate = estimatedCount(table);
+                return estimate >= 0 ? estimate : exactCount.getAsLong();
+            default:
+                return exactCount.getAsLong();
+        }
+    }
+
+    private long cachedCount(String countKey, LongSupplier exactCount) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = countCache.get(countKey);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.value;
+        }
+        long value = exactCount.getAsLong();
+        countCache.put(countKey, new CachedCount(value, now + countTtlMillis));
+        return value;
+    }
+
+    // DB 통계에서 테이블 row 수 추정치를 읽는다. 지원하지 않는 DB 면 -1
+    private long estimatedCount(String table) {
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            String product = connection.getMetaData().getDatabaseProductName();
+            String sql = estimateSql(product);
+            if (sql == null) {
+                return -1L;
+            }
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, "H2".equals(product) ? table.toUpperCase() : table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : -1L;
+                }
+            }
+        });
+    }
+
+    private String estimateSql(String product) {
+        if ("H2".equals(product)) {
+            return "select row_count_estimate from information_schema.tables where table_name = ?";
+        }
+        if ("PostgreSQL".equals(product)) {
+            return "select reltuples::bigint from pg_class where relname = ?";
+        }
+        if ("MySQL".equals(product) || "MariaDB".equals(product)) {
+            return "select table_rows from information_schema.tables where table_schema = database() and table_name = ?";
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    public interface ContentQuery<T> {
+        List<T> fetch(long offset, int limit);
+    }
+
+    private static class CachedCount {
+        private final long value;
+        private final long expiresAt;
+
+        CachedCount(long value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
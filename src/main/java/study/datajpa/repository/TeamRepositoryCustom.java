@@ -0,0 +1,11 @@
+package study.datajpa.repository;
+
+import study.datajpa.entity.Team;
+
+public interface TeamRepositoryCustom {
+
+    //JpaRepository 의 batch 삭제를 대신한다. (bulk delete 는 리스너를 거치지 않으므로 outbox 이벤트와 member_summary 팀 컬럼도 같이 정리)
+    void deleteInBatch(Iterable<Team> teams);
+
+    void deleteAllInBatch();
+}
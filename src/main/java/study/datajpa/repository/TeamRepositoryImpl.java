@@ -0,0 +1,48 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.OutboxEventType;
+import study.datajpa.entity.Team;
+import study.datajpa.outbox.OutboxEvents;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class TeamRepositoryImpl implements TeamRepositoryCustom {
+
+    private final EntityManager em;
+
+    @Override
+    @Transactional
+    public void deleteInBatch(Iterable<Team> teams) {
+        List<Long> ids = new ArrayList<>();
+        teams.forEach(team -> ids.add(team.getId()));
+        delete(ids);
+    }
+
+    @Override
+    @Transactional
+    public void deleteAllInBatch() {
+        delete(em.createQuery("select t.id from Team t", Long.class).getResultList());
+    }
+
+    // MemberSummaryListener / OutboxEventListener 가 팀 삭제 때 하는 일을 직접 한다.
+    private void delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        OutboxEvents.append(em, "Team", OutboxEventType.DELETED, ids);
+        em.createNativeQuery("update member_summary set team_id = null, team_name = null where team_id in (:ids)")
+                .setParameter("ids", ids)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("member_summary")
+                .executeUpdate();
+        em.createQuery("delete from Team t where t.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,26 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * BoundedUnitOfWork 실행 결과 - 처리 건수, flush/detach 횟수, 영속성 컨텍스트 최대 크기 (open() 이전부터 관리 중이던 엔티티 제외)
+ */
+@Getter
+@ToString
+public class UnitOfWorkStats {
+
+    private final long processed;
+    private final int flushes;
+    private final long flushMillis;          // flush + detach 에 걸린 시간 합계
+    private final int maxManagedEntities;    // 한번에 관리한 엔티티 수의 최대값
+    private final long maxEstimatedBytes;    // 추정 메모리의 최대값 (엔티티 + 스냅샷)
+
+    public UnitOfWorkStats(long processed, int flushes, long flushMillis, int maxManagedEntities, long maxEstimatedBytes) {
+        this.processed = processed;
+        this.flushes = flushes;
+        this.flushMillis = flushMillis;
+        this.maxManagedEntities = maxManagedEntities;
+        this.maxEstimatedBytes = maxEstimatedBytes;
+    }
+}
@@ -1,13 +1,15 @@
 package study.datajpa.repository;
 
-import org.springframework.beans.factory.annotation.Value;
-
-import javax.validation.Valid;
-
 public interface UsernameOnly {
 
-//    String getUsername(); // interface 기반의 close projections
+    String getUsername(); // interface 기반의 close projections -> select username, age 만 조회
+    int getAge();
+
+//    @Value("#{target.username + ' ' + target.age}") // interface 기반의 open projections (엔티티 전체 조회 + row 마다 SpEL 평가)
+//    String getUsername();
 
-    @Value("#{target.username + ' ' + target.age}") // interface 기반의 open projections
-    String getUsername();
+    // open projection 대신 default 메서드 : 컴파일된 자바 코드로 계산하고 close projection 으로 유지된다.
+    default String getUsernameAndAge() {
+        return getUsername() + " " + getAge();
+    }
 }
@@ -0,0 +1,32 @@
+package study.datajpa.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * findLockByUsername(PESSIMISTIC_WRITE) 처럼 row 락을 잡고 줄 세우는 대신,
+ * 락 없이 읽고 커밋할때 version 으로 충돌을 확인한 뒤 충돌나면 재시도한다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberService {
+
+    private final MemberRepository memberRepository;
+    private final OptimisticRetry optimisticRetry;
+
+    /**
+     * @return 변경된 나이
+     */
+    public int changeAge(Long memberId, IntUnaryOperator change) {
+        return optimisticRetry.execute(status -> {
+            Member member = memberRepository.findById(memberId)
+                    .orElseThrow(() -> new IllegalArgumentException("member not found: " + memberId));
+            member.setAge(change.applyAsInt(member.getAge()));
+            return member.getAge();
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package study.datajpa.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.OptimisticLockException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 낙관적 락 충돌(@Version 불일치)이 나면 새 트랜잭션에서 처음부터 다시 실행한다.
+ * 매 시도마다 새 트랜잭션(REQUIRES_NEW)이므로 callback 안에서 엔티티를 다시 조회해야 최신 version 을 읽는다.
+ * 재시도 사이에는 지수 backoff + jitter 로 기다려서 같은 row 를 두고 계속 부딪히지 않게 한다.
+ */
+@Component
+public class OptimisticRetry {
+
+    private final TransactionTemplate transaction;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public OptimisticRetry(PlatformTransactionManager transactionManager,
+                           @Value("${datajpa.optimistic-retry.max-attempts:3}") int maxAttempts,
+                           @Value("${datajpa.optimistic-retry.initial-backoff-millis:20}") long initialBackoffMillis,
+                           @Value("${datajpa.optimistic-retry.max-backoff-millis:200}") long maxBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be greater than 0");
+        }
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public <T> T execute(TransactionCallback<T> action) {
+        executions.increment();
+        long backoff = initialBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.execute(action);
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+                sleep(backoff, e);
+                backoff = Math.min(backoff * 2, maxBackoffMillis);
+            }
+        }
+    }
+
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("executions", executions.sum());
+        stats.put("conflicts", conflicts.sum());
+        stats.put("exhausted", exhausted.sum());
+        return stats;
+    }
+
+    private void sleep(long backoff, RuntimeException conflict) {
+        if (backoff <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package study.datajpa.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import study.datajpa.outbox.OutboxRelay;
+import study.datajpa.outbox.OutboxSink;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * shard DB 마다 쌓인 outbox_event 를 발행한다. (기본 DB 는 OutboxRelay)
+ */
+@Slf4j
+public class ShardOutboxRelay {
+
+    private final Shards shards;
+    private final OutboxSink sink;
+    private final int batchSize;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public ShardOutboxRelay(Shards shards, OutboxSink sink, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be greater than 0");
+        }
+        this.shards = shards;
+        this.sink = sink;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * shard 마다 밀린 이벤트가 없을때까지 발행한다.
+     * @return 발행한 이벤트 수
+     */
+    public long relayAll() {
+        long total = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int count;
+            do {
+                count = shards.inTransaction(shard, em -> OutboxRelay.relayBatch(em, sink, batchSize));
+                total += count;
+            } while (count == batchSize);
+        }
+        published.add(total);
+        return total;
+    }
+
+    // datajpa.outbox.relay.enabled=true 일때만 스케줄링 (OutboxConfig)
+    @Scheduled(fixedDelayString = "${datajpa.outbox.relay.interval-millis:1000}")
+    public void relayScheduled() {
+        try {
+            relayAll();
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("shard outbox relay failed, retrying next interval", e);
+        }
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+}
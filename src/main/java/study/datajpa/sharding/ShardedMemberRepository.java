@@ -0,0 +1,153 @@
+package study.datajpa.sharding;
+
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 팀 단위로 shard 에 나눠 저장하는 회원 저장소
+ *
+ * - 새 팀은 shard 를 돌아가며 배정하고, 팀의 회원은 팀과 같은 shard 에 저장한다. (team_id 기준 co-location -> 팀 join 은 shard 안에서 끝난다)
+ * - 팀이 없는 회원도 shard 를 돌아가며 배정한다.
+ * - 회원/팀 id 에 shard 번호가 들어있으므로 id 로 조회하면 shard 하나만 조회한다.
+ * - username 조회와 페이징은 모든 shard 에 동시에 보내고 (scatter) 결과를 정렬 순서대로 합친다. (gather)
+ *   페이징은 shard 마다 offset + size 건을 읽으므로 뒤 페이지일수록 비싸다.
+ *
+ * 반환된 엔티티는 준영속 상태다. (팀은 fetch join 으로 같이 읽는다)
+ */
+public class ShardedMemberRepository {
+
+    private final Shards shards;
+    private final Executor executor;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    public ShardedMemberRepository(Shards shards, Executor executor) {
+        this.shards = shards;
+        this.executor = executor;
+    }
+
+    public Team save(Team team) {
+        if (team.getId() == null) {
+            return shards.inTransaction(nextShard(), em -> {
+                em.persist(team);
+                return team;
+            });
+        }
+        return shards.inTransaction(shards.shardOf(team.getId()), em -> em.merge(team));
+    }
+
+    public Member save(Member member) {
+        if (member.getTeam() != null && member.getTeam().getId() == null) {
+            throw new IllegalArgumentException("team must be saved before its members (the team decides the shard)");
+        }
+        Integer teamShard = member.getTeam() == null ? null : shards.shardOf(member.getTeam().getId());
+        if (member.getId() == null) {
+            return shards.inTransaction(teamShard != null ? teamShard : nextShard(), em -> {
+                em.persist(member);
+                return member;
+            });
+        }
+        int shard = shards.shardOf(member.getId());
+        if (teamShard != null && teamShard != shard) {
+            throw new IllegalArgumentException("moving member " + member.getId() + " to a team on another shard is not supported");
+        }
+        return shards.inTransaction(shard, em -> em.merge(member));
+    }
+
+    public Optional<Member> findById(Long id) {
+        return Optional.ofNullable(shards.inTransaction(shards.shardOf(id), em -> em.createQuery(
+                "select m from Member m left join fetch m.team where m.id = :id", Member.class)
+                .setParameter("id", id)
+                .getResultList()
+                .stream().findFirst().orElse(null)));
+    }
+
+    public int shardOf(Member member) {
+        return shards.shardOf(member.getId());
+    }
+
+    public List<Member> findByUsername(String username) {
+        List<List<Member>> results = scatter(em -> em.createQuery(
+                "select m from Member m left join fetch m.team where m.username = :username order by m.id", Member.class)
+                .setParameter("username", username)
+                .getResultList());
+        return merge(results, Comparator.comparing(Member::getId), Integer.MAX_VALUE);
+    }
+
+    public Page<Member> findAll(Pageable pageable) {
+        Sort sort = pageable.getSort().and(Sort.by("id")); // shard 사이에서도 순서가 정해지도록 id 를 마지막 정렬 기준으로
+        String jpql = QueryUtils.applySorting("select m from Member m left join fetch m.team", sort, "m");
+        int limit = (int) (pageable.getOffset() + pageable.getPageSize());
+
+        List<List<Member>> results = scatter(em -> em.createQuery(jpql, Member.class)
+                .setMaxResults(limit)
+                .getResultList());
+        long total = scatter(em -> em.createQuery("select count(m) from Member m", Long.class).getSingleResult())
+                .stream().mapToLong(Long::longValue).sum();
+
+        List<Member> merged = merge(results, comparator(sort), limit);
+        List<Member> content = merged.size() <= pageable.getOffset()
+                ? new ArrayList<>()
+                : merged.subList((int) pageable.getOffset(), merged.size());
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private int nextShard() {
+        return Math.floorMod(nextShard.getAndIncrement(), shards.size());
+    }
+
+    private <T> List<T> scatter(Function<EntityManager, T> query) {
+        List<CompletableFuture<T>> futures = IntStream.range(0, shards.size())
+                .mapToObj(shard -> CompletableFuture.supplyAsync(() -> shards.inTransaction(shard, query), executor))
+                .collect(Collectors.toList());
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // shard 별로 이미 정렬된 결과를 합친다.
+    private List<Member> merge(List<List<Member>> sortedResults, Comparator<Member> comparator, int limit) {
+        return sortedResults.stream()
+                .flatMap(List::stream)
+                .sorted(comparator)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Comparator<Member> comparator(Sort sort) {
+        Comparator<Member> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Member> next = Comparator.comparing(
+                    member -> (Comparable<Object>) new BeanWrapperImpl(member).getPropertyValue(order.getProperty()),
+                    order.isAscending()
+                            ? Comparator.nullsFirst(Comparator.<Comparable<Object>>naturalOrder())
+                            : Comparator.nullsLast(Comparator.<Comparable<Object>>reverseOrder()));
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+}
@@ -0,0 +1,62 @@
+package study.datajpa.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import study.datajpa.outbox.OutboxSink;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * datajpa.sharding.urls 가 있으면 shard DB 마다 EntityManagerFactory 를 만들고 ShardedMemberRepository 를 등록한다.
+ * 기본 DataSource / MemberRepository 와는 별개로 동작한다. (outbox 는 ShardOutboxRelay 가 같은 sink 로 발행)
+ */
+@Configuration
+@ConditionalOnProperty("datajpa.sharding.urls")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public Shards shards(@Value("${datajpa.sharding.urls}") String[] urls,
+                         @Value("${datajpa.sharding.username:sa}") String username,
+                         @Value("${datajpa.sharding.password:}") String password,
+                         @Value("${datajpa.sharding.ddl-auto:create}") String ddlAuto,
+                         ConfigurableListableBeanFactory beanFactory) {
+        List<DataSource> dataSources = new ArrayList<>();
+        for (String url : urls) {
+            dataSources.add(DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build());
+        }
+        return Shards.create(dataSources, ddlAuto, beanFactory); // close 할때 풀도 닫는다.
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor shardExecutor(Shards shards) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(shards.size() * 2);
+        executor.setMaxPoolSize(shards.size() * 2);
+        executor.setThreadNamePrefix("shard-");
+        return executor;
+    }
+
+    @Bean
+    public ShardedMemberRepository shardedMemberRepository(Shards shards, ThreadPoolTaskExecutor shardExecutor) {
+        return new ShardedMemberRepository(shards, shardExecutor);
+    }
+
+    @Bean
+    public ShardOutboxRelay shardOutboxRelay(Shards shards, OutboxSink sink,
+                                             @Value("${datajpa.outbox.relay.batch-size:500}") int batchSize) {
+        return new ShardOutboxRelay(shards, sink, batchSize);
+    }
+}
@@ -0,0 +1,229 @@
+package study.datajpa.sharding;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import study.datajpa.changes.MemberChangeIntegrator;
+import study.datajpa.changes.MemberChangeSequence;
+import study.datajpa.entity.ChangeCounter;
+import study.datajpa.outbox.OutboxIntegrator;
+import study.datajpa.summary.MemberSummaryIntegrator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * shard 별 EntityManagerFactory (shard 마다 DB 하나, 스키마는 shard 마다 생성)
+ *
+ * id 는 shard 마다 겹치지 않는 구간의 시퀀스에서 나온다. (shard i : i * 2^40 + 1 ~ )
+ * 그래서 회원/팀 id 만 보고 어느 shard 에 있는지 알 수 있다. -> shardOf(id)
+ * 시작할때 shard 마다 시퀀스가 자기 구간 안에 있는지 확인하고, 아니면 예외로 시작을 멈춘다. (잘못된 shard 에 id 가 섞이지 않도록)
+ *
+ * 기본 EntityManagerFactory 와 같은 integrator (member_summary, outbox_event, 커밋 순서 번호) 를 shard 마다 등록한다.
+ * 요약/이벤트/번호는 회원과 같은 shard DB 에 쌓이고, outbox 는 ShardOutboxRelay 가 shard 마다 발행한다.
+ */
+public class Shards implements AutoCloseable {
+
+    static final int SHARD_ID_BITS = 40;
+    private static final String[] POOLED_SEQUENCES = {"member_seq", "team_seq"}; // allocationSize = 50
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final List<EntityManagerFactory> factories;
+    private final List<DataSource> dataSources;
+
+    private Shards(List<EntityManagerFactory> factories, List<DataSource> dataSources) {
+        this.factories = Collections.unmodifiableList(factories);
+        this.dataSources = Collections.unmodifiableList(new ArrayList<>(dataSources));
+    }
+
+    public static Shards create(List<DataSource> dataSources, String ddlAuto) {
+        return create(dataSources, ddlAuto, null);
+    }
+
+    /**
+     * @param ddlAuto     hibernate.hbm2ddl.auto (create 면 시퀀스 시작값도 shard 구간으로 맞춘다)
+     * @throws IllegalStateException shard 의 시퀀스가 그 shard 의 id 구간 밖에 있으면
+     * @param beanFactory entity listener (AuditingEntityListener 등) 를 스프링 빈으로 만든다. null 이면 auditing 이 동작하지 않는다.
+     */
+    public static Shards create(List<DataSource> dataSources, String ddlAuto, ConfigurableListableBeanFactory beanFactory) {
+        List<EntityManagerFactory> factories = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < dataSources.size(); shard++) {
+                EntityManagerFactory factory = entityManagerFactory(shard, dataSources.get(shard), ddlAuto, beanFactory);
+                factories.add(factory);
+                if (ddlAuto.startsWith("create")) {
+                    restartSequences(factory, shard);
+                }
+                verifySequences(factory, dataSources.get(shard), shard);
+                createChangeCounter(factory);
+            }
+        } catch (RuntimeException e) {
+            factories.forEach(EntityManagerFactory::close);
+            throw e;
+        }
+        return new Shards(factories, dataSources);
+    }
+
+    public int size() {
+        return factories.size();
+    }
+
+    public int shardOf(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id must not be null (entity not saved yet)");
+        }
+        int shard = (int) (id >>> SHARD_ID_BITS);
+        if (shard >= factories.size()) {
+            throw new IllegalArgumentException("no shard for id " + id);
+        }
+        return shard;
+    }
+
+    /**
+     * shard 하나에서 트랜잭션 하나로 실행한다. (shard 를 넘나드는 트랜잭션은 지원하지 않는다)
+     */
+    public <T> T inTransaction(int shard, Function<EntityManager, T> work) {
+        EntityManager em = factories.get(shard).createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            T result = work.apply(em);
+            tx.commit();
+            return result;
+        } catch (RuntimeException e) {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * EntityManagerFactory 를 닫고, 닫을 수 있는 DataSource (커넥션 풀) 도 닫는다.
+     */
+    @Override
+    public void close() {
+        factories.forEach(EntityManagerFactory::close);
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof Closeable) {
+                try {
+                    ((Closeable) dataSource).close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private static EntityManagerFactory entityManagerFactory(int shard, DataSource dataSource, String ddlAuto,
+                                                             ConfigurableListableBeanFactory beanFactory) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(AvailableSettings.HBM2DDL_AUTO, ddlAuto);
+        properties.put(AvailableSettings.PHYSICAL_NAMING_STRATEGY, SpringPhysicalNamingStrategy.class.getName());
+        properties.put(AvailableSettings.IMPLICIT_NAMING_STRATEGY, SpringImplicitNamingStrategy.class.getName());
+        properties.put(AvailableSettings.STATEMENT_BATCH_SIZE, 100);
+        properties.put(AvailableSettings.IN_CLAUSE_PARAMETER_PADDING, true);
+        // 쿼리 캐시 / 2차 캐시는 shard 마다 따로라서 끈다.
+        properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+        properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+        properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> Arrays.asList(
+                new MemberSummaryIntegrator(), new OutboxIntegrator(), new MemberChangeIntegrator()));
+        if (beanFactory != null) {
+            properties.put(AvailableSettings.BEAN_CONTAINER, new SpringBeanContainer(beanFactory));
+        }
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setPersistenceUnitName("shard" + shard);
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("study.datajpa.entity");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(properties);
+        factory.afterPropertiesSet();
+        return factory.getObject();
+    }
+
+    // pooled optimizer 는 시퀀스 값 v 를 받으면 (v - 49 ~ v) 를 쓰므로 첫 값을 구간 시작 + 50 으로 맞춘다.
+    private static void restartSequences(EntityManagerFactory factory, int shard) {
+        if (shard == 0) {
+            return;
+        }
+        long start = ((long) shard << SHARD_ID_BITS) + ALLOCATION_SIZE;
+        EntityManager em = factory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (String sequence : POOLED_SEQUENCES) {
+                em.createNativeQuery("alter sequence " + sequence + " restart with " + start).executeUpdate();
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    // pooled optimizer 가 다음에 받을 블록 (v - 49 ~ v) 이 shard 구간 안에 있어야 한다. (값 하나를 소비하므로 블록 하나가 비는 것은 괜찮다)
+    private static void verifySequences(EntityManagerFactory factory, DataSource dataSource, int shard) {
+        Dialect dialect = factory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        long rangeStart = (long) shard << SHARD_ID_BITS;
+        long rangeEnd = rangeStart + (1L << SHARD_ID_BITS) - 1;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sequence : POOLED_SEQUENCES) {
+                long value;
+                try (ResultSet rs = statement.executeQuery(dialect.getSequenceNextValString(sequence))) {
+                    rs.next();
+                    value = rs.getLong(1);
+                }
+                long blockStart = Math.max(value - ALLOCATION_SIZE + 1, 1);
+                if (blockStart < rangeStart || value > rangeEnd) {
+                    throw new IllegalStateException(String.format(
+                            "shard %d sequence %s is at %d, outside its id range [%d, %d] (restart it with %d)",
+                            shard, sequence, value, rangeStart, rangeEnd, rangeStart + ALLOCATION_SIZE));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("cannot read sequences of shard " + shard, e);
+        }
+    }
+
+    // MemberChangeSequence 가 +1 할 row (ChangeCounterInitializer 와 같은 역할)
+    private static void createChangeCounter(EntityManagerFactory factory) {
+        EntityManager em = factory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            if (em.find(ChangeCounter.class, MemberChangeSequence.COUNTER_NAME) == null) {
+                em.persist(new ChangeCounter(MemberChangeSequence.COUNTER_NAME));
+            }
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+}
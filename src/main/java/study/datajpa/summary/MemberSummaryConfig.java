@@ -0,0 +1,15 @@
+package study.datajpa.summary;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.datajpa.config.HibernateIntegrators;
+
+@Configuration
+public class MemberSummaryConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer memberSummaryCustomizer() {
+        return HibernateIntegrators.append(new MemberSummaryIntegrator());
+    }
+}
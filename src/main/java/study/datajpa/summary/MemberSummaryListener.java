@@ -0,0 +1,145 @@
+package study.datajpa.summary;
+
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import study.datajpa.config.SessionJdbcBatch;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Member / Team 변경을 member_summary 에 반영한다.
+ * 변경마다 SQL 을 모아 두었다가 flush 가 끝날때 JDBC batch 로 실행한다. (SessionJdbcBatch)
+ * 팀 이름은 프록시를 초기화하지 않고 같은 SQL 안의 서브쿼리로 읽는다. (팀 insert/update 는 먼저 실행되어 있다)
+ *
+ * JPQL/네이티브 bulk update/delete 는 이벤트가 발생하지 않는다. bulk 메서드에서 직접 갱신하거나 MemberSummaryRebuilder 로 다시 만든다.
+ */
+public class MemberSummaryListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        FlushEventListener, AutoFlushEventListener {
+
+    private static final List<String> MEMBER_SUMMARY_PROPERTIES = Arrays.asList("username", "age", "team");
+
+    private static final String TEAM_NAME = "(select t.name from team t where t.team_id = ?)";
+    private static final String INSERT_MEMBER = "insert into member_summary (member_id, username, age, team_id, team_name)" +
+            " values (?, ?, ?, ?, " + TEAM_NAME + ")";
+    private static final String UPDATE_MEMBER = "update member_summary set username = ?, age = ?, team_id = ?, team_name = " + TEAM_NAME +
+            " where member_id = ?";
+    private static final String DELETE_MEMBER = "delete from member_summary where member_id = ?";
+    private static final String RENAME_TEAM = "update member_summary set team_name = ? where team_id = ?";
+    private static final String DELETE_TEAM = "update member_summary set team_id = null, team_name = null where team_id = ?";
+
+    private final SessionJdbcBatch batch = new SessionJdbcBatch();
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Member member = (Member) event.getEntity();
+            Long memberId = member.getId();
+            SessionJdbcBatch.StatementSetter columns = memberColumns(2, member);
+            batch.add(event.getSession(), INSERT_MEMBER, ps -> {
+                ps.setLong(1, memberId);
+                columns.set(ps);
+            });
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member && isDirty(event, MEMBER_SUMMARY_PROPERTIES)) {
+            Member member = (Member) event.getEntity();
+            Long memberId = member.getId();
+            SessionJdbcBatch.StatementSetter columns = memberColumns(1, member);
+            batch.add(event.getSession(), UPDATE_MEMBER, ps -> {
+                columns.set(ps);
+                ps.setLong(5, memberId);
+            });
+        } else if (event.getEntity() instanceof Team && isDirty(event, Arrays.asList("name"))) {
+            Team team = (Team) event.getEntity();
+            String name = team.getName();
+            Long teamId = team.getId();
+            batch.add(event.getSession(), RENAME_TEAM, ps -> {
+                ps.setString(1, name);
+                ps.setLong(2, teamId);
+            });
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Long id = (Long) event.getId();
+        if (event.getEntity() instanceof Member) {
+            batch.add(event.getSession(), DELETE_MEMBER, ps -> ps.setLong(1, id));
+        } else if (event.getEntity() instanceof Team) {
+            batch.add(event.getSession(), DELETE_TEAM, ps -> ps.setLong(1, id));
+        }
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) {
+        batch.execute(event.getSession());
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) {
+        batch.execute(event.getSession());
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    // index 부터 username, age, team_id, team_name 서브쿼리의 team_id
+    // 값은 이벤트 시점에 읽어 둔다. (SQL 은 flush 가 끝날때 실행된다)
+    private SessionJdbcBatch.StatementSetter memberColumns(int index, Member member) {
+        String username = member.getUsername();
+        int age = member.getAge();
+        Long teamId = member.getTeam() == null ? null : teamId(member.getTeam());
+        return ps -> {
+            ps.setString(index, username);
+            ps.setInt(index + 1, age);
+            if (teamId == null) {
+                ps.setNull(index + 2, Types.BIGINT);
+                ps.setNull(index + 3, Types.BIGINT);
+            } else {
+                ps.setLong(index + 2, teamId);
+                ps.setLong(index + 3, teamId);
+            }
+        };
+    }
+
+    private Long teamId(Team team) {
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team.getId();
+    }
+
+    // dirty 정보가 없으면 (merge 등) 변경된 것으로 본다.
+    private boolean isDirty(PostUpdateEvent event, List<String> properties) {
+        int[] dirtyProperties = event.getDirtyProperties();
+        if (dirtyProperties == null) {
+            return true;
+        }
+        String[] names = event.getPersister().getPropertyNames();
+        for (int index : dirtyProperties) {
+            if (properties.contains(names[index])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+package study.datajpa.summary;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * member_summary 를 member/team 에서 다시 만든다.
+ * 리스너를 거치지 않는 변경 (deleteAllInBatch, 직접 실행한 SQL 등) 이후나 데이터가 어긋났을때 사용한다.
+ */
+@Component
+public class MemberSummaryRebuilder {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * @return 다시 만든 row 수
+     */
+    @Transactional
+    public int rebuild() {
+        em.flush();
+        em.createNativeQuery("delete from member_summary")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("member_summary")
+                .executeUpdate();
+        return em.createNativeQuery("insert into member_summary (member_id, username, age, team_id, team_name)" +
+                " select m.member_id, m.username, m.age, t.team_id, t.name" +
+                " from member m left join team t on t.team_id = m.team_id")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("member_summary")
+                .executeUpdate();
+    }
+}
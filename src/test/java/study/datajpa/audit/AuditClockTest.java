@@ -0,0 +1,113 @@
+package study.datajpa.audit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditClockTest {
+
+    private final Clock original = AuditClock.getClock();
+
+    @AfterEach
+    public void tearDown() {
+        AuditClock.setClock(original);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void fixedClock() throws Exception {
+        //given
+        AuditClock.setClock(Clock.fixed(Instant.parse("2020-01-01T00:00:00Z"), ZoneOffset.UTC));
+
+        //when
+        LocalDateTime now = AuditClock.now();
+
+        //then
+        assertThat(now).isEqualTo(LocalDateTime.of(2020, 1, 1, 0, 0));
+    }
+
+    @Test
+    public void sameMillisecondReused() throws Exception {
+        //given
+        AuditClock.setClock(Clock.fixed(Instant.parse("2020-01-01T00:00:00.123Z"), ZoneOffset.UTC));
+
+        //when
+        LocalDateTime first = AuditClock.now();
+        LocalDateTime second = AuditClock.now();
+        AuditClock.setClock(Clock.fixed(Instant.parse("2020-01-01T00:00:00.124Z"), ZoneOffset.UTC));
+        LocalDateTime nextTick = AuditClock.now();
+
+        //then - 같은 밀리초면 다시 만들지 않는다.
+        assertThat(second).isSameAs(first);
+        assertThat(nextTick).isEqualTo(first.plusNanos(1_000_000));
+    }
+
+    @Test
+    public void readClockWithinTransaction() throws Exception {
+        //given
+        TransactionSynchronizationManager.initSynchronization();
+
+        //when
+        LocalDateTime first = AuditClock.now();
+        AuditClock.setClock(Clock.offset(original, Duration.ofHours(1))); // 긴 batch 트랜잭션 도중에 시간이 흐른 경우
+        LocalDateTime second = AuditClock.now();
+
+        //then - 트랜잭션 시작 시각이 아니라 호출 시각
+        assertThat(second).isAfterOrEqualTo(first.plusHours(1));
+    }
+
+    @Test
+    public void binderResetsOnDestroy() throws Exception {
+        //given
+        Clock fixed = Clock.fixed(Instant.parse("2020-01-01T00:00:00Z"), ZoneOffset.UTC);
+        AuditClockBinder binder = new AuditClockBinder(fixed);
+
+        //when
+        binder.afterPropertiesSet();
+        Clock bound = AuditClock.getClock();
+        binder.destroy();
+
+        //then
+        assertThat(bound).isSameAs(fixed);
+        assertThat(AuditClock.getClock()).isNotSameAs(fixed);
+    }
+
+    @Test
+    public void auditorResolvedOncePerTransaction() throws Exception {
+        //given
+        AtomicInteger calls = new AtomicInteger();
+        TransactionScopedAuditorAware auditorAware = new TransactionScopedAuditorAware(() -> "user" + calls.incrementAndGet());
+        TransactionSynchronizationManager.initSynchronization();
+
+        //when
+        String first = auditorAware.getCurrentAuditor().get();
+        String second = auditorAware.getCurrentAuditor().get();
+        completeTransaction();
+        TransactionSynchronizationManager.initSynchronization();
+        String nextTransaction = auditorAware.getCurrentAuditor().get();
+
+        //then
+        assertThat(first).isEqualTo("user1");
+        assertThat(second).isEqualTo("user1");
+        assertThat(nextTransaction).isEqualTo("user2");
+    }
+
+    private void completeTransaction() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
@@ -0,0 +1,49 @@
+package study.datajpa.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalCacheStorageTest {
+
+    @Test
+    public void lruEviction() throws Exception {
+        //given
+        LocalCacheStorage storage = new LocalCacheStorage("member", 2, 0);
+        storage.putIntoCache(1L, "member1", null);
+        storage.putIntoCache(2L, "member2", null);
+
+        //when
+        storage.getFromCache(1L, null); // 1 을 최근에 사용
+        storage.putIntoCache(3L, "member3", null); // 가장 오래 사용하지 않은 2 가 evict
+
+        //then
+        assertThat(storage.contains(1L)).isTrue();
+        assertThat(storage.contains(2L)).isFalse();
+        assertThat(storage.contains(3L)).isTrue();
+        assertThat(storage.stats().getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void ttlExpiration() throws Exception {
+        //given
+        AtomicLong now = new AtomicLong(1_000);
+        LocalCacheStorage storage = new LocalCacheStorage("team", 10, 50, now::get);
+        storage.putIntoCache(1L, "teamA", null);
+
+        //when
+        now.addAndGet(49);
+        Object hit = storage.getFromCache(1L, null);
+        now.addAndGet(1); // ttl 50ms 가 지났다.
+        Object expired = storage.getFromCache(1L, null);
+
+        //then
+        assertThat(hit).isEqualTo("teamA");
+        assertThat(expired).isNull();
+        assertThat(storage.stats().getHitCount()).isEqualTo(1);
+        assertThat(storage.stats().getMissCount()).isEqualTo(1);
+        assertThat(storage.stats().getHitRatio()).isEqualTo(0.5);
+    }
+}
@@ -0,0 +1,45 @@
+package study.datajpa.changes;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 커밋한 뒤에 읽어야 하므로 테스트 트랜잭션을 걸지 않는다.
+ */
+@SpringBootTest(properties = {"datajpa.cache.enabled=true", "datajpa.outbox.relay.enabled=false"})
+class MemberChangeSequenceTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired EntityManagerFactory emf;
+
+    @Test
+    public void assignedSequenceVisibleThroughSecondLevelCache() throws Exception {
+        //given
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Member member = transaction.execute(status -> memberRepository.save(new Member("changeSeqCached", 10)));
+        try {
+            transaction.executeWithoutResult(status -> memberRepository.findById(member.getId()).get().setAge(11));
+
+            //when - 2차 캐시에서 읽는다.
+            Member found = transaction.execute(status -> memberRepository.findById(member.getId()).get());
+
+            //then - 커밋 직전에 SQL 로 매긴 번호가 캐시에도 보인다.
+            assertThat(emf.getCache().contains(Member.class, member.getId())).isTrue();
+            assertThat(found.getAge()).isEqualTo(11);
+            assertThat(found.getChangeSeq()).isNotNull();
+            assertThat(found.getChangeTx()).isNull();
+        } finally {
+            transaction.executeWithoutResult(status -> memberRepository.deleteById(member.getId()));
+        }
+    }
+}
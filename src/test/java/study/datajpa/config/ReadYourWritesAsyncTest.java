@@ -0,0 +1,40 @@
+package study.datajpa.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * replica 는 스키마가 없는 빈 메모리 DB 다. replica 로 라우팅되면 조회가 실패한다.
+ * 커밋된 데이터를 읽어야 하므로 테스트 트랜잭션을 걸지 않는다.
+ */
+@SpringBootTest(properties = {
+        "datajpa.datasource.replica.url=jdbc:h2:mem:ryw_replica;DB_CLOSE_DELAY=-1",
+        "datajpa.datasource.replica.read-your-writes-millis=60000",
+        "datajpa.outbox.relay.enabled=false"})
+class ReadYourWritesAsyncTest {
+
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    public void asyncReadAfterWrite() throws Exception {
+        //given - 이 스레드에서 쓰기 트랜잭션 커밋
+        Member member = memberRepository.save(new Member("rywMember", 10));
+
+        try {
+            //when - repositoryExecutor 스레드의 읽기 전용 트랜잭션
+            Member found = memberRepository.findAsyncById(member.getId()).get(3, TimeUnit.SECONDS);
+
+            //then - 호출 스레드의 커밋 시각을 넘겨받아 primary 에서 읽는다.
+            assertThat(found.getUsername()).isEqualTo("rywMember");
+        } finally {
+            memberRepository.deleteById(member.getId());
+        }
+    }
+}
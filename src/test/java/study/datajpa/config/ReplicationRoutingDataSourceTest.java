@@ -0,0 +1,85 @@
+package study.datajpa.config;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * H2 메모리 DB 두 개를 primary / replica 로 사용한다.
+ */
+class ReplicationRoutingDataSourceTest {
+
+    private static final DataSource primary = h2("routing_primary");
+    private static final DataSource replica = h2("routing_replica");
+
+    @BeforeAll
+    public static void setUp() {
+        for (DataSource dataSource : new DataSource[]{primary, replica}) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("create table if not exists node (name varchar(20))");
+            jdbcTemplate.update("delete from node");
+        }
+        new JdbcTemplate(primary).update("insert into node values ('primary')");
+        new JdbcTemplate(replica).update("insert into node values ('replica')");
+    }
+
+    @Test
+    public void routeByTransactionReadOnly() throws Exception {
+        //given
+        DataSource dataSource = routing(0);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        //when
+        String write = transaction(dataSource, false).execute(status -> currentNode(jdbcTemplate));
+        String read = transaction(dataSource, true).execute(status -> currentNode(jdbcTemplate));
+        String nested = transaction(dataSource, false).execute(status ->
+                transaction(dataSource, true).execute(inner -> currentNode(jdbcTemplate))); // 바깥 쓰기 트랜잭션에 참여
+
+        //then
+        assertThat(write).isEqualTo("primary");
+        assertThat(read).isEqualTo("replica");
+        assertThat(nested).isEqualTo("primary");
+    }
+
+    @Test
+    public void readYourWrites() throws Exception {
+        //given
+        DataSource dataSource = routing(60_000);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        //when
+        String beforeWrite = transaction(dataSource, true).execute(status -> currentNode(jdbcTemplate));
+        transaction(dataSource, false).execute(status -> currentNode(jdbcTemplate));
+        String afterWrite = transaction(dataSource, true).execute(status -> currentNode(jdbcTemplate));
+
+        //then
+        assertThat(beforeWrite).isEqualTo("replica");
+        assertThat(afterWrite).isEqualTo("primary"); // 커밋 직후에는 replica 지연을 피해서 primary
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private DataSource routing(long readYourWritesMillis) {
+        return new LazyConnectionDataSourceProxy(new ReplicationRoutingDataSource(primary, replica, readYourWritesMillis));
+    }
+
+    private TransactionTemplate transaction(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        template.setReadOnly(readOnly);
+        return template;
+    }
+
+    private String currentNode(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+}
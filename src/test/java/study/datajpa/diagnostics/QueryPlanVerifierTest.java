@@ -0,0 +1,170 @@
+package study.datajpa.diagnostics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.ChangeWatermark;
+import study.datajpa.repository.CountMode;
+import study.datajpa.repository.KeysetOrder;
+import study.datajpa.repository.MemberJpaRepository;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.MemberRepositoryCustom;
+import study.datajpa.repository.UsernameOnlyDto;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Modifier;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "datajpa.query-plan.enabled=true")
+@Transactional
+class QueryPlanVerifierTest {
+
+    // 회원을 수정/삭제하는 메서드 (select 가 없거나 전체 대상이라 실행 계획 확인 대상이 아니다)
+    private static final Set<String> WRITE_METHODS = new HashSet<>(Arrays.asList(
+            "save", "delete", "saveAllBatched", "bulkAgePlus", "deleteInBatch", "deleteAllInBatch"));
+
+    @Autowired QueryPlanVerifier queryPlanVerifier;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired EntityManager em;
+
+    @BeforeEach
+    public void setUp() {
+        queryPlanVerifier.reset(); // 다른 테스트에서 실행된 쿼리는 제외
+    }
+
+    @Test
+    public void memberQueriesUseIndex() throws Exception {
+        //given
+        memberRepository.save(new Member("plan1", 10));
+        em.flush();
+        em.clear();
+
+        //when
+        memberRepository.findByUsername("plan1");
+        memberRepository.findByUsernameAndAgeGreaterThan("plan1", 5);
+        memberRepository.findByNames(Arrays.asList("plan1", "plan2"));
+        memberRepository.findPageByAge(10, PageRequest.of(0, 3), CountMode.EXACT);
+        memberJpaRepository.findByUsername("plan1"); // named query
+        memberJpaRepository.findByUsernameAndAgeGreaterThen("plan1", 5);
+        memberJpaRepository.findByPage(10, 0, 3);
+
+        //then
+        queryPlanVerifier.assertNoTableScans();
+    }
+
+    /**
+     * 두 repository 의 조회 메서드를 모두 실행한다. 조회 메서드를 추가하면 queries 에도 추가해야 통과한다.
+     */
+    @Test
+    public void everyRepositoryQueryUsesIndex() throws Exception {
+        //given
+        Member member = memberRepository.save(new Member("planEvery", 10));
+        em.flush();
+        em.clear();
+        PageRequest page = PageRequest.of(0, 3);
+
+        Map<String, Callable<?>> queries = new LinkedHashMap<>();
+        queries.put("MemberRepository.findByUsernameAndAgeGreaterThan", () -> memberRepository.findByUsernameAndAgeGreaterThan("planEvery", 5));
+        queries.put("MemberRepository.findTop3HelloBy", () -> memberRepository.findTop3HelloBy());
+        queries.put("MemberRepository.findByUsername", () -> memberRepository.findByUsername("planEvery"));
+        queries.put("MemberRepository.findUser", () -> memberRepository.findUser("planEvery", 10));
+        queries.put("MemberRepository.findUsernameList", () -> memberRepository.findUsernameList());
+        queries.put("MemberRepository.findMemberDto", () -> memberRepository.findMemberDto());
+        queries.put("MemberRepository.findByNames", () -> memberRepository.findByNames(Arrays.asList("planEvery", "planOther")));
+        queries.put("MemberRepository.findListByUsername", () -> memberRepository.findListByUsername("planEvery"));
+        queries.put("MemberRepository.findMemberByUsername", () -> memberRepository.findMemberByUsername("planEvery"));
+        queries.put("MemberRepository.findOptionalListByUsername", () -> memberRepository.findOptionalListByUsername("planEvery"));
+        queries.put("MemberRepository.findByAge", () -> memberRepository.findByAge(10, page));
+        queries.put("MemberRepository.findSliceByAge", () -> memberRepository.findSliceByAge(10, page));
+        queries.put("MemberRepository.findMemberFetchJoin", () -> memberRepository.findMemberFetchJoin());
+        queries.put("MemberRepository.findAll", () -> memberRepository.findAll());
+        queries.put("MemberRepository.findMemberEntityGraph", () -> memberRepository.findMemberEntityGraph());
+        queries.put("MemberRepository.findEntityGraphByUsername", () -> memberRepository.findEntityGraphByUsername("planEvery"));
+        queries.put("MemberRepository.findReadOnlyByUsername", () -> memberRepository.findReadOnlyByUsername("planEvery"));
+        queries.put("MemberRepository.findLockByUsername", () -> memberRepository.findLockByUsername("planEvery"));
+        queries.put("MemberRepository.findOptimisticByUsername", () -> memberRepository.findOptimisticByUsername("planEvery"));
+        queries.put("MemberRepository.findSkipLockedByAgeGreaterThanEqualOrderByIdAsc", () -> memberRepository.findSkipLockedByAgeGreaterThanEqualOrderByIdAsc(10, page));
+        queries.put("MemberRepository.findInterfaceProjectionsByUsername", () -> memberRepository.findInterfaceProjectionsByUsername("planEvery"));
+        queries.put("MemberRepository.findClassProjectionsByUsername", () -> memberRepository.findClassProjectionsByUsername("planEvery"));
+        queries.put("MemberRepository.findProjectionsByUsername", () -> memberRepository.findProjectionsByUsername("planEvery", UsernameOnlyDto.class));
+        queries.put("MemberRepository.findAsyncBy", () -> memberRepository.findAsyncBy(page));
+        queries.put("MemberRepository.findAsyncById", () -> memberRepository.findAsyncById(member.getId()));
+        queries.put("MemberRepository.findByNativeQuery", () -> memberRepository.findByNativeQuery("planEvery"));
+        queries.put("MemberRepository.findByNativeProjection", () -> memberRepository.findByNativeProjection(page));
+        queries.put("MemberRepository.findMemberCustom", () -> memberRepository.findMemberCustom());
+        queries.put("MemberRepository.findMemberWindow", () -> {
+            memberRepository.findMemberWindow(KeysetOrder.ID, null, 3);
+            return memberRepository.findMemberWindow(KeysetOrder.USERNAME_ID, null, 3);
+        });
+        queries.put("MemberRepository.changesSince", () -> memberRepository.changesSince(ChangeWatermark.of(0L, 0L), 3));
+        queries.put("MemberRepository.findPageByAge", () -> memberRepository.findPageByAge(10, page, CountMode.EXACT));
+        queries.put("MemberRepository.findNativeProjectionPage", () -> memberRepository.findNativeProjectionPage(page, CountMode.EXACT));
+        queries.put("MemberRepository.findMemberPage", () -> memberRepository.findMemberPage(page, CountMode.EXACT));
+        queries.put("MemberRepository.findMemberPageAsync", () -> memberRepository.findMemberPageAsync(page, CountMode.EXACT));
+        queries.put("MemberJpaRepository.findAll", () -> memberJpaRepository.findAll());
+        queries.put("MemberJpaRepository.findById", () -> memberJpaRepository.findById(member.getId()));
+        queries.put("MemberJpaRepository.count", () -> memberJpaRepository.count());
+        queries.put("MemberJpaRepository.find", () -> memberJpaRepository.find(member.getId()));
+        queries.put("MemberJpaRepository.findByUsernameAndAgeGreaterThen", () -> memberJpaRepository.findByUsernameAndAgeGreaterThen("planEvery", 5));
+        queries.put("MemberJpaRepository.findByUsername", () -> memberJpaRepository.findByUsername("planEvery")); // named query
+        queries.put("MemberJpaRepository.findByPage", () -> memberJpaRepository.findByPage(10, 0, 3));
+        queries.put("MemberJpaRepository.totalCount", () -> memberJpaRepository.totalCount(10));
+
+        //when
+        for (Callable<?> query : queries.values()) {
+            Object result = query.call();
+            if (result instanceof Future) {
+                ((Future<?>) result).get(); // @Async 조회는 다른 스레드에서 끝날 때까지 기다린다.
+            }
+            em.clear(); // find() 가 1차 캐시에서 끝나지 않도록
+        }
+
+        //then
+        assertThat(queries.keySet()).containsAll(queryMethods());
+        queryPlanVerifier.assertNoTableScans();
+    }
+
+    private Set<String> queryMethods() {
+        Stream<String> repository = Stream.concat(
+                Arrays.stream(MemberRepository.class.getDeclaredMethods()),
+                Arrays.stream(MemberRepositoryCustom.class.getDeclaredMethods()))
+                .map(method -> "MemberRepository." + method.getName());
+        Stream<String> jpaRepository = Arrays.stream(MemberJpaRepository.class.getDeclaredMethods())
+                .filter(method -> Modifier.isPublic(method.getModifiers()))
+                .map(method -> "MemberJpaRepository." + method.getName());
+        return Stream.concat(repository, jpaRepository)
+                .filter(name -> !WRITE_METHODS.contains(name.substring(name.indexOf('.') + 1)))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    public void detectTableScan() throws Exception {
+        //when - 인덱스가 없는 컬럼으로 조회
+        em.createQuery("select m from Member m where m.lastModifiedDate < :date", Member.class)
+                .setParameter("date", LocalDateTime.now())
+                .getResultList();
+        Map<String, String> found = queryPlanVerifier.verifyPending();
+
+        //then
+        assertThat(found).containsValue("member");
+        assertThatThrownBy(() -> queryPlanVerifier.assertNoTableScans())
+                .isInstanceOf(FullTableScanDetectedException.class);
+    }
+}
@@ -0,0 +1,49 @@
+package study.datajpa.diagnostics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RepositoryMethodStatsTest {
+
+    @Test
+    public void histogram() throws Exception {
+        //given
+        RepositoryMethodStats stats = new RepositoryMethodStats("MemberRepository.findByUsername");
+
+        //when
+        stats.record(TimeUnit.MICROSECONDS.toNanos(500), 1, 1, false);
+        stats.record(TimeUnit.MILLISECONDS.toNanos(3), 2, 1, false);
+        stats.record(TimeUnit.MILLISECONDS.toNanos(3000), 0, 1, true);
+
+        //then
+        assertThat(stats.getCalls()).isEqualTo(3);
+        assertThat(stats.getErrors()).isEqualTo(1);
+        assertThat(stats.getRows()).isEqualTo(3);
+        assertThat(stats.getHistogram().get("le_1ms")).isEqualTo(1);
+        assertThat(stats.getHistogram().get("le_4ms")).isEqualTo(1);
+        assertThat(stats.getHistogram().get("+Inf")).isEqualTo(1);
+        assertThat(stats.getP50Millis()).isEqualTo(4);
+        assertThat(stats.getMaxMillis()).isEqualTo(3000.0);
+    }
+
+    @Test
+    public void histogramBoundaries() throws Exception {
+        //given
+        RepositoryMethodStats stats = new RepositoryMethodStats("MemberRepository.findByUsername");
+
+        //when
+        stats.record(TimeUnit.MICROSECONDS.toNanos(1000), 0, 1, false); // 1.0ms
+        stats.record(TimeUnit.MICROSECONDS.toNanos(1500), 0, 1, false); // 1.5ms
+        stats.record(TimeUnit.MICROSECONDS.toNanos(2000), 0, 1, false); // 2.0ms
+        stats.record(TimeUnit.MICROSECONDS.toNanos(2500), 0, 1, false); // 2.5ms
+
+        //then
+        //구간 상한은 포함, 소수점 이하는 올려서 다음 구간
+        assertThat(stats.getHistogram().get("le_1ms")).isEqualTo(1);
+        assertThat(stats.getHistogram().get("le_2ms")).isEqualTo(2);
+        assertThat(stats.getHistogram().get("le_4ms")).isEqualTo(1);
+    }
+}
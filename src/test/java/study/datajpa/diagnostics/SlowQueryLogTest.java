@@ -0,0 +1,52 @@
+package study.datajpa.diagnostics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowQueryLogTest {
+
+    @Test
+    public void redactLiterals() throws Exception {
+        //when
+        String redacted = SlowQueryLog.redact(
+                "select member0_.member_id from member member0_ where member0_.username='o''brien' and member0_.age>10 and member0_.team_id=?");
+
+        //then
+        assertThat(redacted).isEqualTo(
+                "select member0_.member_id from member member0_ where member0_.username=? and member0_.age>? and member0_.team_id=?");
+    }
+
+    @Test
+    public void recordOverThreshold() throws Exception {
+        //given
+        SlowQueryLog slowQueryLog = new SlowQueryLog(true, 100);
+
+        //when
+        slowQueryLog.record("select 1", 50_000_000L); // 50ms
+        slowQueryLog.record("select 2", 150_000_000L); // 150ms
+
+        //then
+        assertThat(slowQueryLog.getRecent()).extracting("sql").containsExactly("select ?");
+        assertThat(slowQueryLog.getRecent().get(0).getElapsedMillis()).isEqualTo(150);
+    }
+
+    @Test
+    public void configureWithoutRestart() throws Exception {
+        //given
+        SlowQueryLog slowQueryLog = new SlowQueryLog(false, 200);
+        slowQueryLog.record("select 1", 150_000_000L);
+
+        //when
+        slowQueryLog.configure(true, 100);
+        slowQueryLog.record("select 2", 150_000_000L);
+
+        //then
+        assertThat(slowQueryLog.isEnabled()).isTrue();
+        assertThat(slowQueryLog.getThresholdMillis()).isEqualTo(100);
+        assertThat(slowQueryLog.getRecent()).hasSize(1);
+
+        slowQueryLog.clear();
+        assertThat(slowQueryLog.getRecent()).isEmpty();
+    }
+}
@@ -0,0 +1,37 @@
+package study.datajpa.diagnostics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementCounterTest {
+
+    @Test
+    public void propagate() throws Exception {
+        //given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (StatementCounter.Scope scope = StatementCounter.start()) {
+
+            //when
+            //다른 스레드에서 실행된 SQL 도 제출한 스레드의 scope 에 기록된다.
+            Runnable task = StatementCounter.propagate(() -> StatementCounter.record("select * from member where member_id = ?"));
+            CompletableFuture.runAsync(task, executor).get(3, TimeUnit.SECONDS);
+            CompletableFuture.runAsync(task, executor).get(3, TimeUnit.SECONDS);
+            Runnable notPropagated = () -> StatementCounter.record("select * from member where member_id = ?");
+            CompletableFuture.runAsync(notPropagated, executor).get(3, TimeUnit.SECONDS);
+
+            //then
+            assertThat(scope.getStatementCount()).isEqualTo(2);
+            assertThat(scope.findRepeatedSelects(2)).hasSize(1);
+            //작업이 끝나면 실행 스레드의 scope 는 원래대로 돌아간다.
+            assertThat(CompletableFuture.supplyAsync(StatementCounter::current, executor).get(3, TimeUnit.SECONDS)).isNull();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,10 +1,22 @@
 package study.datajpa.entity;
 
+import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.repository.ItemRepository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
 @Transactional
 @SpringBootTest
 class ItemTest {
@@ -17,4 +29,47 @@ class ItemTest {
         itemRepository.save(item);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void upsertAll() throws Exception {
+        //given
+        itemRepository.upsertAll(Arrays.asList(new Item("A"), new Item("B")));
+
+        Item c = new Item("C");
+
+        //when
+        int inserted = itemRepository.upsertAll(Arrays.asList(new Item("B"), c)); // B 는 이미 있다
+
+        //then
+        assertThat(inserted).isEqualTo(1);
+        assertThat(itemRepository.findById("C")).isPresent();
+        assertThat(itemRepository.findById("B").get().isNew()).isFalse();
+        assertThat(c.isNew()).isFalse(); //insert 된 객체는 새 엔티티가 아니다.
+        itemRepository.saveAndFlush(c); //persist 가 아니라 merge -> 중복 키로 실패하지 않는다.
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 각 스레드가 자기 트랜잭션으로 커밋한다.
+    public void upsertAll_concurrent() throws Exception {
+        //given
+        String prefix = UUID.randomUUID().toString();
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            items.add(new Item(prefix + "-" + i));
+        }
+        List<String> ids = items.stream().map(Item::getId).collect(Collectors.toList());
+
+        try {
+            //when
+            //같은 id 를 동시에 넣으면 한쪽은 중복 키로 실패한 row 를 "이미 있음" 으로 처리해야 한다.
+            CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> itemRepository.upsertAll(items));
+            CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> itemRepository.upsertAll(items));
+
+            //then
+            assertThat(first.get(10, TimeUnit.SECONDS) + second.get(10, TimeUnit.SECONDS)).isEqualTo(200);
+            assertThat(itemRepository.findAllById(ids)).hasSize(200);
+        } finally {
+            itemRepository.deleteAll(itemRepository.findAllById(ids));
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package study.datajpa.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.OutboxEvent;
+import study.datajpa.entity.OutboxEventType;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 이벤트는 커밋된 뒤에 relay 가 읽으므로 테스트 트랜잭션을 걸지 않는다.
+ */
+@SpringBootTest(properties = {"datajpa.outbox.sink=memory", "datajpa.outbox.relay.enabled=false"})
+class OutboxRelayTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired OutboxRelay outboxRelay;
+    @Autowired OutboxSink outboxSink;
+
+    // bulkAgePlus 는 age 이상인 모든 회원을 바꾸므로 다른 테스트의 회원과 겹치지 않는 나이를 쓴다.
+    private static final int AGE = 2_000_000_000;
+
+    @BeforeEach
+    public void setUp() {
+        outboxRelay.relayAll(); // 다른 테스트에서 쌓인 이벤트
+        ((InMemoryOutboxSink) outboxSink).clear();
+    }
+
+    @Test
+    public void relay() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("outboxTeam"));
+        Member member = memberRepository.save(new Member("outboxMember", AGE, team));
+        long published;
+        try {
+            memberRepository.bulkAgePlus(AGE); // bulk update 도 이벤트를 남긴다.
+            memberRepository.deleteById(member.getId());
+            teamRepository.deleteById(team.getId());
+
+            //when
+            published = outboxRelay.relayAll();
+        } finally { // 중간에 실패해도 공유 DB 에 남기지 않는다.
+            if (memberRepository.existsById(member.getId())) {
+                memberRepository.deleteById(member.getId());
+            }
+            if (teamRepository.existsById(team.getId())) {
+                teamRepository.deleteById(team.getId());
+            }
+        }
+
+        //then
+        assertThat(published).isGreaterThanOrEqualTo(4);
+        assertThat(outboxRelay.getStatistics().get("pending")).isEqualTo(0L);
+
+        List<OutboxEvent> events = ((InMemoryOutboxSink) outboxSink).getEvents();
+        List<OutboxEvent> memberEvents = events.stream()
+                .filter(e -> e.getAggregateType().equals("Member") && e.getAggregateId().equals(String.valueOf(member.getId())))
+                .collect(Collectors.toList());
+        assertThat(memberEvents).extracting(OutboxEvent::getEventType)
+                .containsExactly(OutboxEventType.CREATED, OutboxEventType.UPDATED, OutboxEventType.DELETED);
+        assertThat(memberEvents.get(0).getPayload()).contains("\"username\":\"outboxMember\"");
+        assertThat(memberEvents.get(1).getPayload()).contains("\"age\":" + (AGE + 1));
+
+        assertThat(events).anyMatch(e -> e.getAggregateType().equals("Team")
+                && e.getAggregateId().equals(String.valueOf(team.getId()))
+                && e.getEventType() == OutboxEventType.CREATED);
+        //id 순서로 발행
+        assertThat(events).extracting(OutboxEvent::getId).isSorted();
+    }
+
+    @Test
+    public void teamDeleteInBatch() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("outboxBatchTeam"));
+
+        //when - bulk delete 도 이벤트를 남긴다.
+        teamRepository.deleteInBatch(Collections.singletonList(team));
+        outboxRelay.relayAll();
+
+        //then
+        assertThat(teamRepository.existsById(team.getId())).isFalse();
+        assertThat(((InMemoryOutboxSink) outboxSink).getEvents()).anyMatch(e -> e.getAggregateType().equals("Team")
+                && e.getAggregateId().equals(String.valueOf(team.getId()))
+                && e.getEventType() == OutboxEventType.DELETED);
+    }
+}
@@ -0,0 +1,146 @@
+package study.datajpa.repository;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class BoundedUnitOfWorkTest {
+
+    @Autowired BoundedUnitOfWork boundedUnitOfWork;
+    @Autowired EntityManager em;
+
+    @Test
+    public void maxEntities() throws Exception {
+        //given
+        BoundedUnitOfWork.Scope scope = boundedUnitOfWork.open(100, Long.MAX_VALUE);
+
+        //when
+        for (int i = 0; i < 250; i++) {
+            em.persist(new Member("unitOfWork" + i, i));
+            scope.checkpoint();
+        }
+        UnitOfWorkStats stats = scope.finish();
+
+        //then
+        assertThat(stats.getProcessed()).isEqualTo(250);
+        assertThat(stats.getFlushes()).isEqualTo(3); // 100, 200, finish
+        assertThat(stats.getMaxManagedEntities()).isEqualTo(100); // 영속성 컨텍스트가 100개를 넘지 않는다.
+    }
+
+    @Test
+    public void maxBytes() throws Exception {
+        //given
+        BoundedUnitOfWork.Scope scope = boundedUnitOfWork.open(Integer.MAX_VALUE, 1024);
+
+        //when
+        boolean flushed = false;
+        for (int i = 0; i < 64; i++) {
+            em.persist(new Member("unitOfWork" + i, i));
+            flushed |= scope.checkpoint();
+        }
+        UnitOfWorkStats stats = scope.finish();
+
+        //then
+        assertThat(flushed).isTrue(); // 엔티티 수 제한에는 걸리지 않았지만 추정 메모리가 1KB 를 넘었다.
+        assertThat(stats.getMaxEstimatedBytes()).isGreaterThanOrEqualTo(1024);
+    }
+
+    @Test
+    public void forEach() throws Exception {
+        //given
+        Member member = new Member("unitOfWorkMember", 10);
+        em.persist(member);
+        em.flush();
+        em.clear();
+
+        //when
+        UnitOfWorkStats stats = boundedUnitOfWork.forEach(Collections.nCopies(3, member.getId()), id -> {
+            Member findMember = em.find(Member.class, id);
+            findMember.setAge(findMember.getAge() + 1);
+        });
+
+        //then
+        assertThat(stats.getProcessed()).isEqualTo(3);
+        assertThat(em.find(Member.class, member.getId()).getAge()).isEqualTo(13);
+    }
+
+    @Test
+    public void forEach_keepsCallerEntities() throws Exception {
+        //given
+        Member callerMember = new Member("unitOfWorkCaller", 10); //호출한 쪽 트랜잭션에서 관리 중인 엔티티
+        em.persist(callerMember);
+        List<Member> created = new ArrayList<>();
+
+        //when
+        boundedUnitOfWork.forEach(Arrays.asList(1, 2, 3), i -> {
+            Member member = new Member("unitOfWorkCreated" + i, i);
+            em.persist(member);
+            created.add(member);
+        });
+        boolean callerManaged = em.contains(callerMember);
+        callerMember.setAge(20); //forEach 이후에도 변경 감지가 된다.
+        em.flush();
+        em.clear();
+
+        //then
+        assertThat(callerManaged).isTrue();
+        assertThat(created).noneMatch(em::contains); //forEach 안에서 저장한 엔티티만 detach 된다.
+        assertThat(em.find(Member.class, callerMember.getId()).getAge()).isEqualTo(20);
+    }
+
+    @Test
+    public void forEach_releasesFromCallerCollections() throws Exception {
+        //given
+        Team team = new Team("unitOfWorkTeam"); //호출한 쪽에서 관리 중, members 도 초기화되어 있다.
+        em.persist(team);
+        em.flush();
+
+        //when
+        boundedUnitOfWork.forEach(Arrays.asList(1, 2, 3), i -> em.persist(new Member("unitOfWorkTeamMember" + i, i, team)));
+
+        //then - detach 한 회원을 팀의 members 가 계속 들고 있지 않는다. (DB 의 연관관계는 그대로)
+        assertThat(em.contains(team)).isTrue();
+        assertThat(team.getMembers()).isEmpty();
+        em.clear();
+        assertThat(em.find(Team.class, team.getId()).getMembers()).hasSize(3);
+    }
+
+    @Test
+    public void maxEntities_excludesCallerEntities() throws Exception {
+        //given
+        for (int i = 0; i < 50; i++) {
+            em.persist(new Member("unitOfWorkCaller" + i, i));
+        }
+        BoundedUnitOfWork.Scope scope = boundedUnitOfWork.open(100, Long.MAX_VALUE);
+
+        //when
+        List<Member> created = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            Member member = new Member("unitOfWork" + i, i);
+            em.persist(member);
+            created.add(member);
+            scope.checkpoint();
+        }
+        UnitOfWorkStats stats = scope.finish();
+
+        //then
+        assertThat(stats.getFlushes()).isEqualTo(2); // open() 이후 100개, finish
+        assertThat(stats.getMaxManagedEntities()).isEqualTo(100);
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(50); //호출한 쪽 엔티티만 남는다.
+        assertThat(created).noneMatch(em::contains);
+    }
+}
@@ -0,0 +1,81 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * chunk 가 각각 커밋되므로 테스트 트랜잭션을 걸지 않는다.
+ */
+@SpringBootTest
+class MemberBulkUpdateRepositoryTest {
+
+    private static final List<String> NAMES = Arrays.asList("bulk1", "bulk2", "bulk3", "bulk4", "bulk5");
+    // bulk update 는 나이 조건으로 전체 회원을 대상으로 하므로 다른 테스트가 쓰지 않는 나이대를 사용한다.
+    private static final int AGE = 1_000_000_000;
+
+    @Autowired MemberBulkUpdateRepository memberBulkUpdateRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @PersistenceContext EntityManager em;
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        memberRepository.deleteInBatch(memberRepository.findByNames(NAMES));
+    }
+
+    @Test
+    public void bulkAgePlusByChunk() throws Exception {
+        //given
+        for (int i = 0; i < NAMES.size(); i++) {
+            memberRepository.save(new Member(NAMES.get(i), AGE + i));
+        }
+
+        //when
+        List<BulkUpdateProgress> progress = new ArrayList<>();
+        long resultCount = memberBulkUpdateRepository.bulkAgePlus(AGE + 2, 2, progress::add);
+
+        //then
+        assertThat(resultCount).isEqualTo(3);
+        assertThat(progress).isNotEmpty();
+        assertThat(progress.get(progress.size() - 1).getUpdatedTotal()).isEqualTo(3);
+        assertThat(memberRepository.findByUsername("bulk5").get(0).getAge()).isEqualTo(AGE + 5);
+        assertThat(memberRepository.findByUsername("bulk5").get(0).getVersion()).isEqualTo(1L); // native update 도 version 증가
+        assertThat(memberRepository.findByUsername("bulk1").get(0).getAge()).isEqualTo(AGE);
+    }
+
+    @Test
+    public void detachOnlyUpdatedMembers() throws Exception {
+        //given
+        Member younger = memberRepository.save(new Member("bulk1", AGE));
+        Member older = memberRepository.save(new Member("bulk2", AGE + 1000));
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Member managedYounger = em.find(Member.class, younger.getId());
+            Member managedOlder = em.find(Member.class, older.getId());
+
+            //when
+            memberBulkUpdateRepository.bulkAgePlus(AGE + 1000, 100, p -> { });
+
+            //then
+            assertThat(em.contains(managedOlder)).isFalse();//변경된 회원만 영속성 컨텍스트에서 내린다
+            assertThat(em.contains(managedYounger)).isTrue();
+            assertThat(em.find(Member.class, older.getId()).getAge()).isEqualTo(AGE + 1001);
+            return null;
+        });
+    }
+}
@@ -1,6 +1,7 @@
 package study.datajpa.repository;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -9,15 +10,24 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.Rollback;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.diagnostics.StatementCounter;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberSummary;
 import study.datajpa.entity.Team;
 
 import javax.persistence.EntityManager;
 import javax.validation.constraints.AssertTrue;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -29,6 +39,8 @@ class MemberRepositoryTest {
 
     @Autowired MemberRepository memberRepository;
     @Autowired TeamRepository teamRepository;
+    @Autowired MemberQueryRepository memberQueryRepository;
+    @Autowired PlatformTransactionManager transactionManager;
     @Autowired
     EntityManager em;
 
@@ -253,6 +265,137 @@ class MemberRepositoryTest {
         Assertions.assertThat(page.hasNext()).isTrue();//다음 페이지가 있는가?
     }
 
+    @Test
+    public void paging_countMode() throws Exception {
+        //given
+        int age = 3301; // 다른 테스트에서 커밋된 회원과 겹치지 않는 나이
+        memberRepository.save(new Member("member1", age));
+        memberRepository.save(new Member("member2", age));
+        memberRepository.save(new Member("member3", age));
+        memberRepository.save(new Member("member4", age));
+        memberRepository.save(new Member("member5", age));
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "username"));
+
+        //when
+        Page<Member> hasMore = memberRepository.findPageByAge(age, pageRequest, CountMode.HAS_MORE); // count 쿼리 없음
+        Page<Member> hasMoreLast = memberRepository.findPageByAge(age, pageRequest.next(), CountMode.HAS_MORE);
+        Page<Member> cached = memberRepository.findPageByAge(age, pageRequest, CountMode.CACHED);
+        memberRepository.save(new Member("member6", age));
+        Page<Member> cachedAgain = memberRepository.findPageByAge(age, pageRequest, CountMode.CACHED); // TTL 동안은 캐시된 count
+
+        //then
+        Assertions.assertThat(hasMore.getContent()).extracting("username")
+                .containsExactly("member5", "member4", "member3");
+        Assertions.assertThat(hasMore.hasNext()).isTrue();
+        Assertions.assertThat(hasMore.getTotalElements()).isEqualTo(HasMorePage.UNKNOWN_TOTAL); //다음 페이지가 있으면 total 을 모른다.
+        Assertions.assertThat(hasMoreLast.hasNext()).isFalse();
+        Assertions.assertThat(hasMoreLast.getTotalElements()).isEqualTo(5); //마지막 페이지면 total 을 알 수 있다.
+        Assertions.assertThat(cached.getTotalElements()).isEqualTo(5);
+        Assertions.assertThat(cachedAgain.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    public void nativeProjectionPage_rejectsSort() throws Exception {
+        //when
+        PageRequest sorted = PageRequest.of(0, 3, Sort.by("username"));
+
+        //then
+        //member_id 순서로 고정되어 있어서 정렬을 무시하지 않고 거절한다.
+        Assertions.assertThatThrownBy(() -> memberRepository.findNativeProjectionPage(sorted, CountMode.EXACT))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void paging_keyset() throws Exception {
+        //given
+        memberRepository.deleteAllInBatch(); // 다른 테스트에서 커밋된 회원이 정렬 결과에 섞이지 않게
+        memberRepository.save(new Member("member3", 10));
+        memberRepository.save(new Member("member1", 10));
+        memberRepository.save(new Member("member2", 10));
+        memberRepository.save(new Member("member1", 20));
+        memberRepository.save(new Member("member4", 10));
+
+        //when
+        KeysetWindow<Member> first = memberRepository.findMemberWindow(KeysetOrder.USERNAME_ID, null, 3);
+        KeysetWindow<Member> second = memberRepository.findMemberWindow(KeysetOrder.USERNAME_ID, first.getNextCursor(), 3);
+
+        //then
+        Assertions.assertThat(first.getContent()).extracting("username")
+                .containsExactly("member1", "member1", "member2");
+        Assertions.assertThat(first.hasNext()).isTrue();
+        Assertions.assertThat(second.getContent()).extracting("username")
+                .containsExactly("member3", "member4");
+        Assertions.assertThat(second.hasNext()).isFalse();//마지막 페이지면 cursor 가 없다
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // change_seq 는 커밋할때 매겨진다.
+    public void changesSince() throws Exception {
+        //given
+        ChangeWatermark start = latestWatermark(); // 다른 테스트에서 커밋된 변경은 건너뛴다.
+        List<Member> members = new TransactionTemplate(transactionManager).execute(status -> memberRepository.saveAll(Arrays.asList(
+                new Member("member1", 10), new Member("member2", 10), new Member("member3", 10))));
+
+        try {
+            //when
+            //같은 트랜잭션이라 changeSeq 가 같다 -> id 로 순서를 정한다.
+            ChangeSet<Member> first = memberRepository.changesSince(start, 2);
+            ChangeWatermark watermark = ChangeWatermark.decode(first.getNextWatermark().encode()); // 클라이언트가 들고 있다가 다시 보낸다.
+            ChangeSet<Member> second = memberRepository.changesSince(watermark, 2);
+            ChangeSet<Member> third = memberRepository.changesSince(second.getNextWatermark(), 2);
+
+            //then
+            assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+            assertThat(first.hasMore()).isTrue();
+            Member last = first.getContent().get(1);
+            assertThat(last.getChangeSeq()).isEqualTo(first.getContent().get(0).getChangeSeq());
+            assertThat(watermark).isEqualTo(ChangeWatermark.of(last.getChangeSeq(), last.getId()));
+            assertThat(second.getContent()).extracting("username").containsExactly("member3");
+            assertThat(second.hasMore()).isFalse();
+            assertThat(third.getContent()).isEmpty();
+            assertThat(third.getNextWatermark()).isEqualTo(second.getNextWatermark()); //변경이 없으면 그대로
+        } finally {
+            memberRepository.deleteInBatch(members);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void changesSince_lateCommit() throws Exception {
+        //given
+        ChangeWatermark start = latestWatermark();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<Long> ids = new ArrayList<>();
+
+        try {
+            //when
+            //먼저 시작해서 flush 까지 한 트랜잭션(late)이 나중에 시작한 트랜잭션(early)보다 늦게 커밋된다.
+            ChangeSet<Member> beforeLateCommit = transaction.execute(status -> {
+                ids.add(memberRepository.saveAndFlush(new Member("late", 10)).getId());
+                newTransaction.execute(s -> ids.add(memberRepository.save(new Member("early", 10)).getId()));
+                return newTransaction.execute(s -> memberRepository.changesSince(start, 10));
+            });
+            ChangeSet<Member> afterLateCommit = memberRepository.changesSince(beforeLateCommit.getNextWatermark(), 10);
+
+            //then
+            //early 를 읽고 watermark 가 지나갔어도 late 는 커밋할때 더 큰 번호를 받는다.
+            assertThat(beforeLateCommit.getContent()).extracting("username").containsExactly("early");
+            assertThat(afterLateCommit.getContent()).extracting("username").containsExactly("late");
+        } finally {
+            memberRepository.deleteInBatch(memberRepository.findAllById(ids));
+        }
+    }
+
+    private ChangeWatermark latestWatermark() {
+        ChangeSet<Member> changes = memberRepository.changesSince(ChangeWatermark.initial(), 1000);
+        while (changes.hasMore()) {
+            changes = memberRepository.changesSince(changes.getNextWatermark(), 1000);
+        }
+        return changes.getNextWatermark();
+    }
+
     @Test
     public void bulkUpdate() throws Exception {
         //given
@@ -276,6 +419,99 @@ class MemberRepositoryTest {
         assertThat(resultCount).isEqualTo(3);
     }
 
+    @Test
+    public void memberSummary() throws Exception {
+        //given
+        Team teamA = teamRepository.save(new Team("summaryTeamA"));
+        Team teamB = teamRepository.save(new Team("summaryTeamB"));
+        Member member = memberRepository.save(new Member("summaryMember", 3100, teamA));
+        em.flush();
+        em.clear();
+
+        //when
+        Member findMember = memberRepository.findById(member.getId()).get();
+        Team findTeamB = em.find(Team.class, teamB.getId());
+        findMember.changeTeam(findTeamB); // 팀 이동
+        findTeamB.setName("summaryTeamC"); // 팀 이름 변경
+        em.flush();
+        memberRepository.bulkAgePlus(3100); // bulk update
+
+        //then
+        MemberSummary summary = em.find(MemberSummary.class, member.getId());
+        assertThat(summary.getTeamId()).isEqualTo(teamB.getId());
+        assertThat(summary.getTeamName()).isEqualTo("summaryTeamC");
+        assertThat(summary.getAge()).isEqualTo(3101);
+
+        //회원 삭제
+        memberRepository.deleteById(member.getId());
+        em.flush();
+        assertThat(em.find(MemberSummary.class, member.getId())).isNull();
+    }
+
+    @Test
+    public void memberSummary_batched() throws Exception {
+        //given
+        Team team = teamRepository.save(new Team("summaryBatchTeam"));
+        em.flush();
+
+        try (StatementCounter.Scope scope = StatementCounter.start()) {
+            //when
+            for (int i = 0; i < 50; i++) {
+                em.persist(new Member("summaryBatch" + i, 3300, team));
+            }
+            em.flush();
+
+            //then - member, member_summary, outbox_event insert 를 각각 한번만 준비한다. (회원마다 batch 가 끊기지 않는다)
+            assertThat(scope.getStatementCount()).isLessThan(10);
+        }
+        List<MemberSummary> summaries = em.createQuery("select s from MemberSummary s where s.age = 3300", MemberSummary.class)
+                .getResultList();
+        assertThat(summaries).hasSize(50);
+        assertThat(summaries).allMatch(summary -> "summaryBatchTeam".equals(summary.getTeamName()));
+    }
+
+    @Test
+    public void saveAllBatched() throws Exception {
+        //given
+        Team team = new Team("teamA");
+        teamRepository.save(team);
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            members.add(new Member("batch" + i, i, team));
+        }
+
+        //when
+        int savedCount = memberRepository.saveAllBatched(members, 100); // 100건마다 flush, 저장한 회원만 detach
+
+        //then
+        Assertions.assertThat(savedCount).isEqualTo(250);
+        Assertions.assertThat(em.contains(members.get(0))).isFalse();//detach 되어서 준영속 상태
+        Assertions.assertThat(em.contains(members.get(249))).isFalse();
+        Assertions.assertThat(em.contains(team)).isTrue();//호출한 쪽의 엔티티는 그대로 영속 상태
+        Assertions.assertThat(team.getMembers()).isEmpty();//팀의 members 도 detach 한 회원을 들고 있지 않는다.
+        Assertions.assertThat(memberRepository.findByUsername("batch249").get(0).getAge()).isEqualTo(249);
+    }
+
+    @Test
+    public void exportMembers() throws Exception {
+        //given
+        Team team = new Team("teamA");
+        teamRepository.save(team);
+        memberRepository.save(new Member("export1", 10, team));
+        memberRepository.save(new Member("export2", 20));
+        em.flush();
+        em.clear();
+
+        //when
+        List<MemberDto> exported = new ArrayList<>();
+        long count = memberQueryRepository.exportMembers(exported::add);
+
+        //then
+        Assertions.assertThat(count).isEqualTo(exported.size());
+        Assertions.assertThat(exported).extracting("username").contains("export1", "export2");
+        Assertions.assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0);//엔티티가 영속성 컨텍스트에 쌓이지 않는다
+    }
+
     @Test
     public void findMemberLazy() throws Exception {
         //given
@@ -305,6 +541,32 @@ class MemberRepositoryTest {
         }
     }
 
+    @Test
+    public void findMemberLazy_batchFetch() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        teamRepository.save(teamA);
+        teamRepository.save(teamB);
+        memberRepository.save(new Member("lazy1", 10, teamA));
+        memberRepository.save(new Member("lazy2", 10, teamB));
+
+        em.flush();
+        em.clear();
+
+        try (StatementCounter.Scope scope = StatementCounter.start()) {
+            //when
+            List<Member> members = memberRepository.findByNames(Arrays.asList("lazy1", "lazy2"));
+            for (Member member : members) {
+                member.getTeam().getName(); // team 프록시 초기화 -> in 절로 한번에
+            }
+
+            //then
+            scope.assertNoNPlusOne(2);
+            assertThat(scope.getStatementCount()).isEqualTo(2);//select Member 1 + Team 1
+        }
+    }
+
     @Test
     public void queryHint() throws Exception  {
         //given
@@ -360,8 +622,9 @@ class MemberRepositoryTest {
         List<UsernameOnly> result1 = memberRepository.findInterfaceProjectionsByUsername("m1");
 
         for (UsernameOnly usernameOnly : result1) {
-            System.out.println("usernameOnly= " + usernameOnly);
+            System.out.println("usernameOnly= " + usernameOnly.getUsernameAndAge());
         }
+        assertThat(result1.get(0).getUsernameAndAge()).isEqualTo("m1 10");
 
         System.out.println("==================");
 
@@ -410,4 +673,26 @@ class MemberRepositoryTest {
         }
         //then
     }
-}
\ No newline at end of file
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // 비동기 조회는 다른 트랜잭션이라 커밋된 회원만 보인다.
+    public void findAsync() throws Exception {
+        //given
+        Member member = memberRepository.save(new Member("asyncMember", 10));
+
+        try {
+            //when - repositoryExecutor 스레드에서 별도 트랜잭션으로 실행된다.
+            CompletableFuture<Member> found = memberRepository.findAsyncById(member.getId());
+            CompletableFuture<Member> notFound = memberRepository.findAsyncById(-1L);
+            CompletableFuture<Page<Member>> page = memberRepository.findAsyncBy(PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "id")));
+
+            //then
+            assertThat(found.get(3, TimeUnit.SECONDS).getUsername()).isEqualTo("asyncMember");
+            assertThat(notFound.get(3, TimeUnit.SECONDS)).isNull();
+            assertThat(page.get(3, TimeUnit.SECONDS).getContent()).first()
+                    .extracting(Member::getUsername).isEqualTo("asyncMember"); // 가장 최근에 저장한 회원
+        } finally {
+            memberRepository.deleteById(member.getId());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.WorkStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * claim 은 커밋되어야 다른 worker 에게 보이므로 테스트 트랜잭션을 걸지 않는다.
+ * 큐에는 enqueue 한 회원만 들어가므로 이 테스트가 넣은 회원만 보인다.
+ */
+@SpringBootTest
+class MemberWorkQueueTest {
+
+    @Autowired MemberWorkQueue memberWorkQueue;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberWorkRepository memberWorkRepository;
+
+    private final List<Member> members = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 1; i <= 5; i++) {
+            members.add(memberRepository.save(new Member("work" + i, i)));
+        }
+        memberWorkQueue.enqueue(ids(members));
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        memberWorkRepository.deleteInBatch(memberWorkRepository.findAllById(ids(members)));
+        memberRepository.deleteInBatch(members);
+        members.clear();
+    }
+
+    @Test
+    public void claimDisjointBatches() throws Exception {
+        //when
+        List<Member> workerA = memberWorkQueue.claimBatch(3, "workerA", Duration.ofMinutes(5));
+        List<Member> workerB = memberWorkQueue.claimBatch(3, "workerB", Duration.ofMinutes(5));
+        List<Member> workerC = memberWorkQueue.claimBatch(3, "workerC", Duration.ofMinutes(5));
+
+        //then
+        assertThat(workerA).extracting("username").containsExactly("work1", "work2", "work3");
+        assertThat(workerB).extracting("username").containsExactly("work4", "work5");
+        assertThat(workerC).isEmpty();
+        assertThat(memberWorkRepository.findAllById(ids(workerA))).allMatch(work -> work.getStatus() == WorkStatus.CLAIMED);
+    }
+
+    @Test
+    public void completeAndRelease() throws Exception {
+        //given
+        List<Long> claimed = ids(memberWorkQueue.claimBatch(2, "workerA", Duration.ofMinutes(5)));
+
+        //when
+        int completedByOther = memberWorkQueue.complete(claimed, "workerB"); // lease 가 없는 worker
+        int completed = memberWorkQueue.complete(claimed.subList(0, 1), "workerA");
+        int released = memberWorkQueue.release(claimed.subList(1, 2), "workerA");
+
+        //then
+        assertThat(completedByOther).isEqualTo(0);
+        assertThat(completed).isEqualTo(1);
+        assertThat(released).isEqualTo(1);
+        assertThat(memberWorkRepository.findById(claimed.get(0)).get().getStatus()).isEqualTo(WorkStatus.DONE);
+        assertThat(memberWorkQueue.claimBatch(5, "workerB", Duration.ofMinutes(5))).extracting("username")
+                .containsExactly("work2", "work3", "work4", "work5"); // 돌려놓은 회원은 다시 가져갈 수 있다.
+    }
+
+    @Test
+    public void reclaimExpiredLease() throws Exception {
+        //given
+        List<Long> expired = ids(memberWorkQueue.claimBatch(5, "workerA", Duration.ZERO));
+        Thread.sleep(10);
+
+        //when
+        List<Member> reclaimed = memberWorkQueue.claimBatch(5, "workerB", Duration.ofMinutes(5));
+
+        //then
+        assertThat(ids(reclaimed)).isEqualTo(expired);
+        assertThat(memberWorkRepository.findAllById(expired)).allMatch(work -> "workerB".equals(work.getLeaseOwner()));
+        assertThat(memberWorkQueue.complete(expired, "workerA")).isEqualTo(0);
+    }
+
+    @Test
+    public void queueStateLeavesMemberUntouched() throws Exception {
+        //given
+        Member before = memberRepository.findById(members.get(0).getId()).get();
+
+        //when
+        List<Long> claimed = ids(memberWorkQueue.claimBatch(1, "workerA", Duration.ofMinutes(5)));
+        memberWorkQueue.complete(claimed, "workerA");
+
+        //then
+        //작업 상태는 member_work 에만 있으므로 회원의 version (낙관적 락), 수정 시각이 바뀌지 않는다.
+        Member after = memberRepository.findById(claimed.get(0)).get();
+        assertThat(after.getVersion()).isEqualTo(before.getVersion());
+        assertThat(after.getLastModifiedDate()).isEqualTo(before.getLastModifiedDate());
+    }
+
+    @Test
+    public void enqueueAgainAfterDone() throws Exception {
+        //given
+        List<Long> claimed = ids(memberWorkQueue.claimBatch(2, "workerA", Duration.ofMinutes(5)));
+        memberWorkQueue.complete(claimed.subList(0, 1), "workerA");
+
+        //when
+        int queued = memberWorkQueue.enqueue(ids(members)); // DONE 인 work1 만 다시 READY, 처리 중인 work2 는 그대로
+
+        //then
+        assertThat(queued).isEqualTo(1);
+        assertThat(memberWorkRepository.findById(claimed.get(1)).get().getLeaseOwner()).isEqualTo("workerA");
+        assertThat(memberWorkQueue.claimBatch(5, "workerB", Duration.ofMinutes(5))).extracting("username")
+                .containsExactly("work1", "work3", "work4", "work5");
+    }
+
+    @Test
+    public void defaultWorkerIdPerThread() throws Exception {
+        //when
+        String mine = memberWorkQueue.currentWorkerId();
+        String other = CompletableFuture.supplyAsync(memberWorkQueue::currentWorkerId).get();
+
+        //then
+        assertThat(memberWorkQueue.currentWorkerId()).isEqualTo(mine);
+        assertThat(other).isNotEqualTo(mine);
+    }
+
+    private List<Long> ids(List<Member> members) {
+        return members.stream().map(Member::getId).collect(Collectors.toList());
+    }
+}
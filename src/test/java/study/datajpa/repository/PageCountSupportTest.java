@@ -0,0 +1,99 @@
+package study.datajpa.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CountMode.PARALLEL 의 count 는 별도 트랜잭션에서 실행되므로 커밋된 데이터만 본다. 테스트 트랜잭션을 걸지 않는다.
+ */
+@SpringBootTest
+class PageCountSupportTest {
+
+    private static final int AGE = 3003;
+    private static final List<String> NAMES = Arrays.asList("parallel1", "parallel2", "parallel3", "parallel4", "parallel5");
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired DataSource dataSource;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp() {
+        memberRepository.deleteInBatch(memberRepository.findByNames(NAMES));
+    }
+
+    @Test
+    public void parallelCount() throws Exception {
+        //given
+        for (String name : NAMES) {
+            memberRepository.save(new Member(name, AGE));
+        }
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "username"));
+
+        //when
+        Page<Member> page = memberRepository.findPageByAge(AGE, pageRequest, CountMode.PARALLEL);
+        Page<Member> lastPage = memberRepository.findPageByAge(AGE, pageRequest.next(), CountMode.PARALLEL);
+
+        //then
+        assertThat(page.getContent()).extracting("username")
+                .containsExactly("parallel5", "parallel4", "parallel3");
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getTotalPages()).isEqualTo(2);
+        assertThat(lastPage.getContent()).extracting("username")
+                .containsExactly("parallel2", "parallel1");
+        assertThat(lastPage.getTotalElements()).isEqualTo(5);
+    }
+
+    /**
+     * 호출자 트랜잭션이 마지막 커넥션을 잡고 있으면 count 는 커넥션을 얻지 못한다.
+     * connection-timeout 까지 기다리지 않고 count-wait-millis 후 호출자 커넥션에서 count 해야 한다.
+     */
+    @Test
+    public void parallelCount_poolSaturated() throws Exception {
+        //given
+        for (String name : NAMES) {
+            memberRepository.save(new Member(name, AGE));
+        }
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        List<Connection> held = new ArrayList<>();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        try {
+            for (int i = 0; i < pool.getMaximumPoolSize() - 1; i++) {
+                held.add(pool.getConnection());
+            }
+
+            //when
+            long start = System.currentTimeMillis();
+            Page<Member> page = readOnly.execute(status ->
+                    memberRepository.findPageByAge(AGE, PageRequest.of(0, 3), CountMode.PARALLEL));
+            long elapsed = System.currentTimeMillis() - start;
+
+            //then
+            assertThat(page.getContent()).hasSize(3);
+            assertThat(page.getTotalElements()).isEqualTo(5);
+            assertThat(elapsed).isLessThan(pool.getConnectionTimeout());
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+    }
+}
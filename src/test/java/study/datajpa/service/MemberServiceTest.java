@@ -0,0 +1,109 @@
+package study.datajpa.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 재시도마다 새 트랜잭션을 커밋하므로 테스트 트랜잭션을 걸지 않는다.
+ */
+@SpringBootTest
+class MemberServiceTest {
+
+    @Autowired MemberService memberService;
+    @Autowired OptimisticRetry optimisticRetry;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    private Long memberId;
+
+    @AfterEach
+    public void cleanUp() {
+        if (memberId != null) {
+            memberRepository.deleteById(memberId);
+        }
+    }
+
+    @Test
+    public void changeAge() throws Exception {
+        //given
+        memberId = memberRepository.save(new Member("optimistic1", 10)).getId();
+
+        //when
+        int age = memberService.changeAge(memberId, current -> current + 1);
+
+        //then
+        Member member = memberRepository.findById(memberId).get();
+        assertThat(age).isEqualTo(11);
+        assertThat(member.getAge()).isEqualTo(11);
+        assertThat(member.getVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    public void retryOnConflict() throws Exception {
+        //given
+        memberId = memberRepository.save(new Member("optimistic2", 10)).getId();
+        TransactionTemplate other = new TransactionTemplate(transactionManager);
+        other.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        long conflictsBefore = optimisticRetry.getStatistics().get("conflicts");
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        int age = optimisticRetry.execute(status -> {
+            Member member = memberRepository.findById(memberId).get();
+            if (attempts.incrementAndGet() == 1) {
+                // 읽은 뒤 다른 트랜잭션이 먼저 수정하고 커밋 -> 이 트랜잭션의 커밋은 version 충돌
+                other.execute(s -> {
+                    memberRepository.findById(memberId).get().setAge(100);
+                    return null;
+                });
+            }
+            member.setAge(member.getAge() + 1);
+            return member.getAge();
+        });
+
+        //then
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(age).isEqualTo(101); // 두번째 시도는 다른 트랜잭션의 변경을 읽는다.
+        assertThat(optimisticRetry.getStatistics().get("conflicts")).isEqualTo(conflictsBefore + 1);
+    }
+
+    @Test
+    public void addMembersConcurrently() throws Exception {
+        //given
+        Long teamId = teamRepository.save(new Team("optimisticTeam")).getId();
+        TransactionTemplate first = new TransactionTemplate(transactionManager);
+        TransactionTemplate second = new TransactionTemplate(transactionManager);
+        second.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        try {
+            //when - 두 트랜잭션이 같은 team 을 읽고 각자 회원을 추가한다. 뒤에 커밋하는 쪽도 충돌하지 않아야 한다.
+            first.execute(status -> {
+                Team team = teamRepository.findById(teamId).get();
+                second.execute(s -> memberRepository.save(new Member("optimisticMember2", 10, teamRepository.findById(teamId).get())));
+                return memberRepository.save(new Member("optimisticMember1", 10, team));
+            });
+
+            //then
+            assertThat(teamRepository.findById(teamId).get().getVersion()).isEqualTo(0L);
+            assertThat(memberRepository.findByNames(Arrays.asList("optimisticMember1", "optimisticMember2"))).hasSize(2);
+        } finally {
+            memberRepository.deleteInBatch(memberRepository.findByNames(Arrays.asList("optimisticMember1", "optimisticMember2")));
+            teamRepository.deleteById(teamId);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package study.datajpa.sharding;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.outbox.InMemoryOutboxSink;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * H2 메모리 DB 3개를 shard 로 사용한다.
+ */
+class ShardedMemberRepositoryTest {
+
+    private static final int SHARD_COUNT = 3;
+
+    private static final List<DataSource> dataSources = new ArrayList<>();
+    private static Shards shards;
+    private static ExecutorService executor;
+    private static ShardedMemberRepository repository;
+
+    private static Team teamA;
+    private static Team teamB;
+    private static Team teamC;
+
+    @BeforeAll
+    public static void setUp() {
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            dataSources.add(new DriverManagerDataSource("jdbc:h2:mem:shard_test" + i + ";DB_CLOSE_DELAY=-1", "sa", ""));
+        }
+        shards = Shards.create(dataSources, "create-drop");
+        executor = Executors.newFixedThreadPool(SHARD_COUNT);
+        repository = new ShardedMemberRepository(shards, executor);
+
+        teamA = repository.save(new Team("teamA"));
+        teamB = repository.save(new Team("teamB"));
+        teamC = repository.save(new Team("teamC"));
+        repository.save(new Member("member1", 10, teamA));
+        repository.save(new Member("member2", 20, teamB));
+        repository.save(new Member("member3", 30, teamC));
+        repository.save(new Member("member4", 40, teamA));
+        repository.save(new Member("member1", 50, teamC)); // 같은 username 이 다른 shard 에
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        shards.close();
+        executor.shutdown();
+    }
+
+    @Test
+    public void colocateMembersWithTeam() throws Exception {
+        //then - 팀은 shard 를 돌아가며, 회원은 팀과 같은 shard 에
+        assertThat(shards.shardOf(teamA.getId())).isEqualTo(0);
+        assertThat(shards.shardOf(teamB.getId())).isEqualTo(1);
+        assertThat(shards.shardOf(teamC.getId())).isEqualTo(2);
+        assertThat(memberCount(0)).isEqualTo(2);
+        assertThat(memberCount(1)).isEqualTo(1);
+        assertThat(memberCount(2)).isEqualTo(2);
+
+        Member member = repository.findByUsername("member2").get(0);
+        assertThat(repository.shardOf(member)).isEqualTo(shards.shardOf(teamB.getId()));
+        assertThat(repository.findById(member.getId()).get().getTeam().getName()).isEqualTo("teamB");
+    }
+
+    @Test
+    public void scatterGatherFindByUsername() throws Exception {
+        //when
+        List<Member> members = repository.findByUsername("member1");
+
+        //then
+        assertThat(members).extracting("age").containsExactly(10, 50); // id 순 (shard 0 -> shard 2)
+        assertThat(members).extracting("team.name").containsExactly("teamA", "teamC");
+    }
+
+    @Test
+    public void scatterGatherFindAll() throws Exception {
+        //when
+        Page<Member> page = repository.findAll(PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "age")));
+
+        //then
+        assertThat(page.getContent()).extracting("age").containsExactly(30, 20);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getTotalPages()).isEqualTo(3);
+    }
+
+    @Test
+    public void saveMemberOfUnsavedTeam() throws Exception {
+        //when - 팀 id 로 shard 를 정하므로 팀을 먼저 저장해야 한다.
+        Member member = new Member("member5", 60, new Team("unsaved"));
+
+        //then
+        assertThatThrownBy(() -> repository.save(member))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void summaryAndOutboxPerShard() throws Exception {
+        //then - 기본 DB 와 같은 integrator 가 shard 마다 동작한다.
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            assertThat(count(shard, "member_summary")).isEqualTo(memberCount(shard));
+            assertThat(new JdbcTemplate(dataSources.get(shard))
+                    .queryForObject("select count(*) from member where change_seq is null", Long.class)).isZero();
+        }
+
+        //when
+        long pending = count(0, "outbox_event") + count(1, "outbox_event") + count(2, "outbox_event");
+        InMemoryOutboxSink sink = new InMemoryOutboxSink();
+        long published = new ShardOutboxRelay(shards, sink, 2).relayAll();
+
+        //then
+        assertThat(pending).isGreaterThanOrEqualTo(5); // 회원 저장 5건 이상
+        assertThat(published).isEqualTo(pending);
+        assertThat(sink.getEvents()).hasSize((int) pending);
+        assertThat(count(0, "outbox_event") + count(1, "outbox_event") + count(2, "outbox_event")).isZero();
+    }
+
+    @Test
+    public void failFastWhenSequenceOutsideShardRange() throws Exception {
+        //given - 스키마는 있지만 shard 1 의 시퀀스가 shard 0 구간에 있다. (ddl-auto 가 create 가 아니면 시퀀스를 맞추지 않는다)
+        List<DataSource> misconfigured = Arrays.asList(
+                new DriverManagerDataSource("jdbc:h2:mem:shard_range0;DB_CLOSE_DELAY=-1", "sa", ""),
+                new DriverManagerDataSource("jdbc:h2:mem:shard_range1;DB_CLOSE_DELAY=-1", "sa", ""));
+        Shards.create(misconfigured, "create").close();
+        new JdbcTemplate(misconfigured.get(1)).execute("alter sequence member_seq restart with 1");
+
+        //then
+        assertThatThrownBy(() -> Shards.create(misconfigured, "none"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("shard 1 sequence member_seq");
+    }
+
+    private long count(int shard, String table) {
+        return new JdbcTemplate(dataSources.get(shard)).queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    private long memberCount(int shard) {
+        return new JdbcTemplate(dataSources.get(shard)).queryForObject("select count(*) from member", Long.class);
+    }
+}